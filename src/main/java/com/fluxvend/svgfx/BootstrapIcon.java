@@ -16,20 +16,29 @@
 package com.fluxvend.svgfx;
 
 import com.fluxvend.svgfx.icons.Bi;
+import com.fluxvend.svgfx.utils.IconAtlas;
+import com.fluxvend.svgfx.utils.RenderCoalescer;
 import com.fluxvend.svgfx.utils.SvgLoader;
-import javafx.animation.Animation;
-import javafx.animation.PauseTransition;
+import com.fluxvend.svgfx.utils.VectorIcon;
 import javafx.beans.DefaultProperty;
 import javafx.beans.property.*;
 import javafx.beans.value.ChangeListener;
-import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.geometry.NodeOrientation;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.AccessibleRole;
+import javafx.scene.Group;
+import javafx.scene.Node;
 import javafx.scene.control.Control;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.util.Duration;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Shape;
+import javafx.scene.transform.Scale;
+import javafx.scene.transform.Translate;
+
+import java.util.function.Supplier;
 
 /**
  * BootstrapIcon is a custom ImageView component for displaying Bootstrap icons in JavaFX.
@@ -37,17 +46,23 @@ import javafx.util.Duration;
  */
 @DefaultProperty("icon")
 public class BootstrapIcon extends Control {
-    private PauseTransition pauseTransition;
     @FXML
     private ObjectProperty<Bi> icon = new SimpleObjectProperty<>();
     @FXML
     private StringProperty color = new SimpleStringProperty();
     @FXML
     private DoubleProperty size = new SimpleDoubleProperty(24.0);
+    @FXML
+    private ObjectProperty<RenderMode> renderMode = new SimpleObjectProperty<>(RenderMode.RASTER);
     private static String ICON_PATH = "/com/fluxvend/svgfx/images/svg/bi/";
     private static final String DEFAULT_STYLE_CLASS = "bootstrap-icon";
 
     private ImageView imageView = new ImageView();
+    private final RenderCoalescer<Rendered> renderer = new RenderCoalescer<>(this::imageLoader, this::applyImage);
+    private Group vectorNode;
+    private VectorIcon vectorIcon;
+    private final Scale vectorScale = new Scale();
+    private final OutputScale outputScale = new OutputScale(this);
 
     /**
      * Get the icon property
@@ -138,51 +153,196 @@ public class BootstrapIcon extends Control {
         this.size.set(size);
     }
 
+    /**
+     * Get the render mode property
+     *
+     * @return the render mode property
+     */
+    @FXML
+    public ObjectProperty<RenderMode> renderModeProperty() {
+        return renderMode;
+    }
+
+    /**
+     * Get the render mode property
+     *
+     * @return the current render mode
+     */
+    @FXML
+    public RenderMode getRenderMode() {
+        return renderMode.get();
+    }
+
+    /**
+     * Set the render mode property
+     *
+     * @param renderMode the render mode to set
+     */
+    @FXML
+    public void setRenderMode(RenderMode renderMode) {
+        this.renderMode.set(renderMode);
+    }
+
+    /**
+     * Returns the classpath URL of an icon's SVG file.
+     *
+     * @param bi the icon
+     * @return the URL of the SVG file
+     */
+    private static String iconUrl(Bi bi) {
+        return ICON_PATH+"bi-"+bi.getIcon()+".svg";
+    }
+
+    /**
+     * Checks whether the icon is shown as vector nodes.
+     *
+     * @return true in vector mode
+     */
+    private boolean isVectorMode() {
+        return getRenderMode() == RenderMode.VECTOR;
+    }
+
+    /**
+     * Checks whether the icon is shown through the shared icon atlas.
+     *
+     * @return true in atlas mode
+     */
+    private boolean isAtlasMode() {
+        return getRenderMode() == RenderMode.ATLAS;
+    }
 
     /**
      * Loads the image for the current icon and color.
+     * In atlas mode this is a copy of the icon's cell of the shared atlas.
      *
      * @return the loaded image
      */
     public Image loadImage() {
+        Rendered rendered = imageLoader().get();
+        if (rendered == null) {
+            return null;
+        }
+        Rectangle2D viewport = rendered.viewport;
+        if (viewport == null) {
+            return rendered.image;
+        }
+        return new WritableImage(rendered.image.getPixelReader(), (int) viewport.getMinX(), (int) viewport.getMinY(),
+                (int) viewport.getWidth(), (int) viewport.getHeight());
+    }
+
+    /**
+     * Captures the current icon, color, size and output scale for a render.
+     *
+     * @return a supplier rendering the captured state, with the icon's viewport in atlas mode
+     */
+    private Supplier<Rendered> imageLoader() {
         Bi bi = icon.get();
         if(bi == null){
-            return null;
+            return () -> null;
         }
         double width = this.getSize();
         double height = this.getSize();
         String color = this.getColor();
-        return SvgLoader.getInstance().loadSvgImage(ICON_PATH+"bi-"+bi.getIcon()+".svg",color,false,width,height);
+        double scale = outputScale.getScale();
+        if (isAtlasMode()) {
+            return () -> new Rendered(IconAtlas.getImage(bi,color,width,scale), IconAtlas.getViewport(bi,width,scale));
+        }
+        return () -> new Rendered(SvgLoader.getInstance().loadSvgImage(iconUrl(bi),color,false,width,height,scale), null);
+    }
+
+    /**
+     * Shows a rendered image, through the icon's viewport in atlas mode.
+     *
+     * @param rendered the rendered image, or null
+     */
+    private void applyImage(Rendered rendered) {
+        imageView.setViewport(rendered == null ? null : rendered.viewport);
+        imageView.setImage(rendered == null ? null : rendered.image);
     }
 
     /**
      * Loads the image asynchronously
-     * This method will load the image in a background thread and update the image view when done.
-     * It will also add a pause transition to prevent flickering when the image is changed rapidly.
+     * This method will load the image on the shared render executor and update the image view when done.
+     * The first change renders right away, bursts of changes are coalesced and superseded renders are cancelled.
      */
     private void loadImageAsync() {
-        if (pauseTransition != null && pauseTransition.getStatus() == Animation.Status.RUNNING) {
-            pauseTransition.stop();
+        renderer.request();
+    }
+
+    /**
+     * Switches between the image view and the vector nodes for the current render mode.
+     */
+    private void applyRenderMode() {
+        if (isVectorMode()) {
+            renderer.cancel();
+            imageView.setImage(null);
+            imageView.setVisible(false);
+            updateVectorNode();
+        } else {
+            removeVectorNode();
+            imageView.setVisible(true);
+            loadImageAsync();
+        }
+    }
+
+    /**
+     * Replaces the vector nodes with the shared paths of the current icon.
+     */
+    private void updateVectorNode() {
+        removeVectorNode();
+        Bi bi = icon.get();
+        if (bi == null) {
+            return;
+        }
+        vectorIcon = VectorIcon.forUrl(iconUrl(bi));
+        vectorNode = vectorIcon.createNode();
+        vectorNode.setManaged(false);
+        vectorNode.getTransforms().setAll(vectorScale, new Translate(-vectorIcon.getMinX(), -vectorIcon.getMinY()));
+        updateVectorScale();
+        updateVectorFill();
+        this.getChildren().add(vectorNode);
+    }
+
+    /**
+     * Removes the vector nodes, if any.
+     */
+    private void removeVectorNode() {
+        if (vectorNode != null) {
+            this.getChildren().remove(vectorNode);
+            vectorNode = null;
+            vectorIcon = null;
+        }
+    }
+
+    /**
+     * Scales the vector nodes to fit the current size.
+     */
+    private void updateVectorScale() {
+        if (vectorIcon == null) {
+            return;
+        }
+        double scale = Math.min(getSize() / vectorIcon.getWidth(), getSize() / vectorIcon.getHeight());
+        vectorScale.setX(scale);
+        vectorScale.setY(scale);
+    }
+
+    /**
+     * Fills the vector nodes with the current color, black if none is set.
+     */
+    private void updateVectorFill() {
+        if (vectorNode == null) {
+            return;
+        }
+        Color fill = null;
+        try {
+            fill = SvgLoader.getInstance().resolveColor(getColor());
+        } catch (IllegalArgumentException ex) {
+            // not a color, fall back to the SVG default
+        }
+        for (Node node : vectorNode.getChildren()) {
+            ((Shape) node).setFill(fill == null ? Color.BLACK : fill);
         }
-        pauseTransition = new PauseTransition(Duration.seconds(2));
-        pauseTransition.setOnFinished(event -> {
-            Task<Image> loadImageTask = new Task<>() {
-                @Override
-                protected Image call() {
-                    return loadImage();
-                }
-
-                @Override
-                protected void succeeded() {
-                    imageView.setImage(getValue());
-                }
-            };
-            new Thread(loadImageTask).start();
-        });
-        pauseTransition.play();
     }
-    
-    
 
     /**
      * Default constructor for BootstrapIcon. Sets default size, icon, and initializes listeners.
@@ -205,6 +365,8 @@ public class BootstrapIcon extends Control {
         this.icon.addListener(iconChangeListener);
         this.color.addListener(colorChangeListener);
         this.size.addListener(sizeChangeListener);
+        this.renderMode.addListener(renderModeChangeListener);
+        this.outputScale.scaleProperty().addListener(outputScaleChangeListener);
         this.prefWidthProperty().addListener(widthChangeListener);
         this.prefHeightProperty().addListener(heightChangeListener);
 
@@ -235,6 +397,47 @@ public class BootstrapIcon extends Control {
         this.icon.addListener(iconChangeListener);
         this.color.addListener(colorChangeListener);
         this.size.addListener(sizeChangeListener);
+        this.renderMode.addListener(renderModeChangeListener);
+        this.outputScale.scaleProperty().addListener(outputScaleChangeListener);
+        this.prefWidthProperty().addListener(widthChangeListener);
+        this.prefHeightProperty().addListener(heightChangeListener);
+
+        this.prefHeightProperty().bindBidirectional(this.prefWidthProperty());
+        this.size.bindBidirectional(this.prefWidthProperty());
+    }
+
+    /**
+     * Constructor for BootstrapIcon with a specified icon and render mode.
+     *
+     * @param icon       the initial icon to set
+     * @param renderMode the initial render mode to set
+     */
+    public BootstrapIcon(Bi icon, RenderMode renderMode) {
+        imageView.setFitHeight(this.getSize());
+        imageView.setFitWidth(this.getSize());
+        this.setWidth(this.getSize());
+        this.setHeight(this.getSize());
+        this.setPrefSize(this.getSize(),this.getSize());
+        this.setMaxSize(USE_PREF_SIZE,USE_PREF_SIZE);
+
+        this.icon.set(icon);
+        this.renderMode.set(renderMode);
+        getStyleClass().add(DEFAULT_STYLE_CLASS);
+        setAccessibleRole(AccessibleRole.IMAGE_VIEW);
+        setNodeOrientation(NodeOrientation.LEFT_TO_RIGHT);
+        this.getChildren().add(imageView);
+        if (isVectorMode()) {
+            imageView.setVisible(false);
+            updateVectorNode();
+        } else {
+            applyImage(imageLoader().get());
+        }
+
+        this.icon.addListener(iconChangeListener);
+        this.color.addListener(colorChangeListener);
+        this.size.addListener(sizeChangeListener);
+        this.renderMode.addListener(renderModeChangeListener);
+        this.outputScale.scaleProperty().addListener(outputScaleChangeListener);
         this.prefWidthProperty().addListener(widthChangeListener);
         this.prefHeightProperty().addListener(heightChangeListener);
 
@@ -244,28 +447,58 @@ public class BootstrapIcon extends Control {
 
     /**
      * Change listener for the icon property
-     * This listener will reload the image
+     * This listener will reload the image, or swap the vector nodes in vector mode
      */
     private final ChangeListener<Bi> iconChangeListener = (observable, oldValue, newValue) -> {
-        loadImageAsync();
+        if (isVectorMode()) {
+            updateVectorNode();
+        } else {
+            loadImageAsync();
+        }
     };
 
     /**
      * Change listener for the color property
-     * This listener will reload the image
+     * This listener will reload the image, or refill the vector nodes in vector mode
      */
     private final ChangeListener<String> colorChangeListener = (observable, oldValue, newValue) -> {
-        loadImageAsync();
+        if (isVectorMode()) {
+            updateVectorFill();
+        } else {
+            loadImageAsync();
+        }
     };
 
     /**
      * Change listener for the size property
-     * This listener will resize the image view and reload the image
+     * This listener will resize the image view and reload the image, or rescale the vector nodes in vector mode
      */
     private final ChangeListener<Number> sizeChangeListener = (observable, oldValue, newValue) -> {
         imageView.setFitHeight(newValue.doubleValue());
         imageView.setFitWidth(newValue.doubleValue());
-        loadImageAsync();
+        if (isVectorMode()) {
+            updateVectorScale();
+        } else {
+            loadImageAsync();
+        }
+    };
+
+    /**
+     * Change listener for the output scale of the window
+     * This listener will reload the image at the new scale, vector nodes need no update
+     */
+    private final ChangeListener<Number> outputScaleChangeListener = (observable, oldValue, newValue) -> {
+        if (!isVectorMode()) {
+            loadImageAsync();
+        }
+    };
+
+    /**
+     * Change listener for the render mode property
+     * This listener will switch between the image view and the vector nodes
+     */
+    private final ChangeListener<RenderMode> renderModeChangeListener = (observable, oldValue, newValue) -> {
+        applyRenderMode();
     };
 
     /**
@@ -293,5 +526,17 @@ public class BootstrapIcon extends Control {
         this.imageView.resizeRelocate(0.0, 0.0, this.getSize(), this.getSize());
     }
 
-}
 
+    /**
+     * An image together with the region of it showing the icon.
+     */
+    private static final class Rendered {
+        private final Image image;
+        private final Rectangle2D viewport;
+
+        private Rendered(Image image, Rectangle2D viewport) {
+            this.image = image;
+            this.viewport = viewport;
+        }
+    }
+}
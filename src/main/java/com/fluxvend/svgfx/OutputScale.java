@@ -0,0 +1,108 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx;
+
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.value.ChangeListener;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.stage.Screen;
+import javafx.stage.Window;
+
+/**
+ * OutputScale tracks the render scale of the window a node is shown in,
+ * so controls can rasterize at device pixels on HiDPI screens.
+ * The value only changes when the node's window moves to a screen with a different scale.
+ */
+final class OutputScale {
+
+    private final ReadOnlyDoubleWrapper scale = new ReadOnlyDoubleWrapper(defaultScale());
+    private Scene scene;
+    private Window window;
+
+    private final ChangeListener<Number> windowScaleListener = (observable, oldValue, newValue) -> update();
+
+    private final ChangeListener<Window> windowListener = (observable, oldValue, newValue) -> {
+        if (window != null) {
+            window.outputScaleXProperty().removeListener(windowScaleListener);
+        }
+        window = newValue;
+        if (window != null) {
+            window.outputScaleXProperty().addListener(windowScaleListener);
+        }
+        update();
+    };
+
+    private final ChangeListener<Scene> sceneListener = (observable, oldValue, newValue) -> {
+        if (scene != null) {
+            scene.windowProperty().removeListener(windowListener);
+        }
+        scene = newValue;
+        if (scene != null) {
+            scene.windowProperty().addListener(windowListener);
+        }
+        windowListener.changed(null, window, scene == null ? null : scene.getWindow());
+    };
+
+    /**
+     * Starts tracking the output scale of a node's window.
+     *
+     * @param node the node to track
+     */
+    OutputScale(Node node) {
+        node.sceneProperty().addListener(sceneListener);
+        sceneListener.changed(null, null, node.getScene());
+    }
+
+    /**
+     * Get the output scale property
+     *
+     * @return the output scale property
+     */
+    ReadOnlyDoubleProperty scaleProperty() {
+        return scale.getReadOnlyProperty();
+    }
+
+    /**
+     * Get the output scale
+     *
+     * @return the current output scale
+     */
+    double getScale() {
+        return scale.get();
+    }
+
+    /**
+     * Reads the scale of the current window. While the node is not shown the last
+     * scale is kept, so moving a node between scenes does not cause a re-render.
+     */
+    private void update() {
+        if (window != null && window.getOutputScaleX() > 0) {
+            scale.set(window.getOutputScaleX());
+        }
+    }
+
+    /**
+     * Returns the scale of the primary screen, used until the node is shown.
+     *
+     * @return the output scale of the primary screen
+     */
+    private static double defaultScale() {
+        double value = Screen.getPrimary().getOutputScaleX();
+        return value > 0 ? value : 1.0;
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx;
+
+/**
+ * RenderMode selects how a {@link BootstrapIcon} draws its icon.
+ */
+public enum RenderMode {
+    /**
+     * Rasterize the SVG into an image, re-rendered in the background on changes.
+     */
+    RASTER,
+    /**
+     * Show the icon's paths as JavaFX shape nodes. Resizing and recoloring are instant.
+     */
+    VECTOR,
+    /**
+     * Show the icon through a viewport into an image shared by all icons of the same size and color,
+     * so icon-heavy screens use one texture instead of one per icon.
+     */
+    ATLAS
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx;
+
+import com.fluxvend.svgfx.utils.IconAtlas;
+import com.fluxvend.svgfx.utils.RenderExecutor;
+import com.fluxvend.svgfx.utils.SvgLoader;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SvgCaches configures the caches and the render pool shared by {@link SvgImageView} and {@link BootstrapIcon}.
+ */
+public final class SvgCaches {
+
+    private SvgCaches() {
+    }
+
+    /**
+     * Sets the capacity of the rendered image cache.
+     *
+     * @param maxBytes the capacity in pixel bytes, 0 disables caching
+     */
+    public static void setImageCacheCapacity(long maxBytes) {
+        SvgLoader.setImageCacheCapacity(maxBytes);
+    }
+
+    /**
+     * Returns the capacity of the rendered image cache.
+     *
+     * @return the capacity in pixel bytes
+     */
+    public static long getImageCacheCapacity() {
+        return SvgLoader.getImageCacheCapacity();
+    }
+
+    /**
+     * Sets the capacity of the icon atlas cache.
+     *
+     * @param maxBytes the capacity in pixel bytes
+     */
+    public static void setAtlasCacheCapacity(long maxBytes) {
+        IconAtlas.setCacheCapacity(maxBytes);
+    }
+
+    /**
+     * Sets the directory renders are kept in across restarts.
+     *
+     * @param directory the directory, or null to disable the disk cache
+     */
+    public static void setDiskCacheDirectory(Path directory) {
+        SvgLoader.setDiskCacheDirectory(directory);
+    }
+
+    /**
+     * Returns the directory renders are kept in across restarts.
+     *
+     * @return the directory, or null if the disk cache is disabled
+     */
+    public static Path getDiskCacheDirectory() {
+        return SvgLoader.getDiskCacheDirectory();
+    }
+
+    /**
+     * Sets the capacity of the disk cache.
+     *
+     * @param maxBytes the capacity in bytes
+     */
+    public static void setDiskCacheCapacity(long maxBytes) {
+        SvgLoader.setDiskCacheCapacity(maxBytes);
+    }
+
+    /**
+     * Returns the capacity of the disk cache.
+     *
+     * @return the capacity in bytes
+     */
+    public static long getDiskCacheCapacity() {
+        return SvgLoader.getDiskCacheCapacity();
+    }
+
+    /**
+     * Deletes every render kept on disk.
+     */
+    public static void clearDiskCache() {
+        SvgLoader.clearDiskCache();
+    }
+
+    /**
+     * Removes every cached rendering of the given SVG.
+     *
+     * @param url the URL of the SVG file
+     */
+    public static void invalidate(String url) {
+        SvgLoader.invalidateImageCache(url);
+    }
+
+    /**
+     * Removes every cached rendering.
+     */
+    public static void invalidateAll() {
+        SvgLoader.invalidateImageCache();
+    }
+
+    /**
+     * Stops the shared render pool, letting queued renders finish. Call it from {@code Application.stop()}.
+     *
+     * @param timeout the maximum time to wait for queued renders
+     * @param unit    the unit of the timeout
+     * @return true if all renders finished within the timeout
+     */
+    public static boolean shutdown(long timeout, TimeUnit unit) {
+        return RenderExecutor.shutdown(timeout, unit);
+    }
+}
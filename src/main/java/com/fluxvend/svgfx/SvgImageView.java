@@ -25,29 +25,27 @@
 
 package com.fluxvend.svgfx;
 
+import com.fluxvend.svgfx.utils.RenderCoalescer;
 import com.fluxvend.svgfx.utils.SvgLoader;
-import javafx.animation.Animation;
-import javafx.animation.PauseTransition;
 import javafx.beans.DefaultProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.beans.value.ChangeListener;
-import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.geometry.NodeOrientation;
 import javafx.scene.AccessibleRole;
 import javafx.scene.control.Control;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.util.Duration;
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.function.Supplier;
+
 /**
  * SvgImageView is a custom ImageView component for displaying SVG images in JavaFX.
  */
 @DefaultProperty("svg")
 public class SvgImageView extends Control {
-    private PauseTransition pauseTransition;
 
     @FXML
     private StringProperty color = new SimpleStringProperty();
@@ -55,6 +53,8 @@ public class SvgImageView extends Control {
     private StringProperty svg = new SimpleStringProperty();
 
     private ImageView imageView = new ImageView();
+    private final RenderCoalescer<Rendered> renderer = new RenderCoalescer<>(this::imageLoader, this::applyImage);
+    private final OutputScale outputScale = new OutputScale(this);
 
     private static final String DEFAULT_STYLE_CLASS = "svg-image-view";
     private static final int DEFAULT_SIZE = 100;
@@ -126,44 +126,66 @@ public class SvgImageView extends Control {
      * @return the loaded image
      */
     public Image loadImage() {
-        if(StringUtils.isBlank(this.getSvg())) {
+        Rendered rendered = imageLoader().get();
+        if (rendered == null) {
             return null;
         }
+        fitToImage(rendered);
+        return rendered.image;
+    }
+
+    /**
+     * Captures the current svg, color, size and output scale for a render.
+     *
+     * @return a supplier rendering the captured state, together with the captured scale
+     */
+    private Supplier<Rendered> imageLoader() {
+        if(StringUtils.isBlank(this.getSvg())) {
+            return () -> null;
+        }
         Double width = imageView.getFitWidth() <= 0.00 ? null : imageView.getFitWidth();
         Double height = imageView.getFitHeight() <= 0.00 ? null :  imageView.getFitHeight();
         String url = this.getSvg();
         String color = this.getColor();
-        Image image = SvgLoader.getInstance().loadSvgImage(url, color,false,width,height);
-        imageView.setFitWidth(image.getWidth());
-        imageView.setFitHeight(image.getHeight());
-        return image;
+        double scale = outputScale.getScale();
+        return () -> {
+            Image image = SvgLoader.getInstance().loadSvgImage(url, color,false,width,height,scale);
+            return image == null ? null : new Rendered(image, scale);
+        };
+    }
+
+    /**
+     * Shows a rendered image and fits the image view to it.
+     *
+     * @param rendered the rendered image, or null
+     */
+    private void applyImage(Rendered rendered) {
+        if (rendered == null) {
+            imageView.setImage(null);
+            return;
+        }
+        fitToImage(rendered);
+        imageView.setImage(rendered.image);
+    }
+
+    /**
+     * Fits the image view to the logical size of an image, using the output scale it was rendered at
+     * rather than the current one, which may have changed while it rendered.
+     *
+     * @param rendered the rendered image
+     */
+    private void fitToImage(Rendered rendered) {
+        imageView.setFitWidth(rendered.image.getWidth() / rendered.scale);
+        imageView.setFitHeight(rendered.image.getHeight() / rendered.scale);
     }
 
     /**
      * Loads the image asynchronously
-     * This method will load the image in a background thread and update the image view when done.
-     * It will also add a pause transition to prevent flickering when the image is changed rapidly.
+     * This method will load the image on the shared render executor and update the image view when done.
+     * The first change renders right away, bursts of changes are coalesced and superseded renders are cancelled.
      */
     private void loadImageAsync() {
-        if (pauseTransition != null && pauseTransition.getStatus() == Animation.Status.RUNNING) {
-            pauseTransition.stop();
-        }
-        pauseTransition = new PauseTransition(Duration.seconds(2));
-        pauseTransition.setOnFinished(event -> {
-            Task<Image> loadImageTask = new Task<>() {
-                @Override
-                protected Image call() {
-                    return loadImage();
-                }
-
-                @Override
-                protected void succeeded() {
-                    imageView.setImage(getValue());
-                }
-            };
-            new Thread(loadImageTask).start();
-        });
-        pauseTransition.play();
+        renderer.request();
     }
 
 
@@ -188,6 +210,7 @@ public class SvgImageView extends Control {
 
         this.svg.addListener(svgChangeListener);
         this.color.addListener(colorChangeListener);
+        this.outputScale.scaleProperty().addListener(outputScaleChangeListener);
         this.prefWidthProperty().addListener(widthChangeListener);
         this.prefHeightProperty().addListener(heightChangeListener);
     }
@@ -215,15 +238,17 @@ public class SvgImageView extends Control {
 
         this.svg.addListener(svgChangeListener);
         this.color.addListener(colorChangeListener);
+        this.outputScale.scaleProperty().addListener(outputScaleChangeListener);
         this.prefWidthProperty().addListener(widthChangeListener);
         this.prefHeightProperty().addListener(heightChangeListener);
     }
 
     /**
      * Change listener for the svg property
-     * This listener will reload the image
+     * This listener will cancel pending renders of the previous svg and reload the image
      */
     private final ChangeListener<String> svgChangeListener = (observable, oldValue, newValue) -> {
+        renderer.cancel();
         imageView.setImage(loadImage());
     };
 
@@ -235,6 +260,14 @@ public class SvgImageView extends Control {
         loadImageAsync();
     };
 
+    /**
+     * Change listener for the output scale of the window
+     * This listener will reload the image at the new scale
+     */
+    private final ChangeListener<Number> outputScaleChangeListener = (observable, oldValue, newValue) -> {
+        loadImageAsync();
+    };
+
     /**
      * Change listener for the width property
      * This listener will resize the image view to fit the new width and height
@@ -259,4 +292,17 @@ public class SvgImageView extends Control {
     protected void layoutChildren() {
         this.imageView.resizeRelocate(0.0, 0.0, this.getWidth(), this.getHeight());
     }
-}
\ No newline at end of file
+
+    /**
+     * An image together with the output scale it was rendered at.
+     */
+    private static final class Rendered {
+        private final Image image;
+        private final double scale;
+
+        private Rendered(Image image, double scale) {
+            this.image = image;
+            this.scale = scale;
+        }
+    }
+}
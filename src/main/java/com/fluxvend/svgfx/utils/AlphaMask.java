@@ -0,0 +1,139 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * AlphaMask is the coverage of a single-color SVG rendered once at a given size.
+ * Any colored variant is produced from it with one pass over the pixels,
+ * without running Batik again.
+ */
+final class AlphaMask {
+
+    private final int width;
+    private final int height;
+    private final byte[] alpha;
+
+    /**
+     * Creates a mask from coverage values.
+     *
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     * @param alpha  the coverage of each pixel, row by row
+     */
+    AlphaMask(int width, int height, byte[] alpha) {
+        this.width = width;
+        this.height = height;
+        this.alpha = alpha;
+    }
+
+    /**
+     * Extracts the alpha channel of a rendered image.
+     *
+     * @param image the rendered image
+     * @return the mask
+     */
+    static AlphaMask of(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] alpha = new byte[width * height];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                alpha[y * width + x] = (byte) (row[x] >>> 24);
+            }
+        }
+        return new AlphaMask(width, height, alpha);
+    }
+
+    /**
+     * Get the width of the mask
+     *
+     * @return the width in pixels
+     */
+    int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the mask
+     *
+     * @return the height in pixels
+     */
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the coverage values, row by row. The array is shared and must not be modified.
+     *
+     * @return the coverage values
+     */
+    byte[] getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * Get the memory held by the mask
+     *
+     * @return the size in bytes
+     */
+    long sizeInBytes() {
+        return alpha.length;
+    }
+
+    /**
+     * Produces the mask filled with a color.
+     *
+     * @param color the fill color
+     * @return a new image of the mask's size
+     */
+    WritableImage tint(Color color) {
+        int[] pixels = new int[width * height];
+        tint(color, pixels);
+        WritableImage image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+        return image;
+    }
+
+    /**
+     * Writes the mask filled with a color as premultiplied ARGB pixels.
+     *
+     * @param color  the fill color, its opacity is ignored like on the Batik path
+     * @param pixels the destination, at least width * height long
+     */
+    void tint(Color color, int[] pixels) {
+        // same truncation SvgLoader.toHexString applies before handing a color to Batik,
+        // which also drops the opacity, so it is ignored here as well
+        int r = (int) (255 * color.getRed());
+        int g = (int) (255 * color.getGreen());
+        int b = (int) (255 * color.getBlue());
+        for (int i = 0; i < alpha.length; i++) {
+            int a = alpha[i] & 0xff;
+            if (a == 0) {
+                pixels[i] = 0;
+                continue;
+            }
+            pixels[i] = (a << 24) | (((r * a + 127) / 255) << 16) | (((g * a + 127) / 255) << 8) | ((b * a + 127) / 255);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import com.fluxvend.svgfx.icons.Bi;
+import javafx.scene.paint.Color;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * BiPack serves the {@link Bi} icons pre-rendered at build time. The pack holds the alpha mask of
+ * every icon at the pixel sizes listed in the {@code svgfx.pack.sizes} Maven property, so those
+ * sizes are tinted straight from the pack without loading Batik. Other sizes fall back to rendering.
+ * Only icons painted in a single color, black unless recolored, are packed.
+ * <p>
+ * The pack is read on first use; set the {@code svgfx.biPack.disabled} system property to ignore it.
+ */
+final class BiPack {
+
+    private static Logger log = Logger.getLogger(BiPack.class.getName());
+
+    /**
+     * Classpath location of the generated pack.
+     */
+    public static final String PACK_PATH = "/com/fluxvend/svgfx/images/svg/bi-pack.bin";
+
+    private static final int MAGIC = 0x53564750; // "SVGP"
+    private static final int VERSION = 1;
+
+    private static final boolean disabled = Boolean.getBoolean("svgfx.biPack.disabled");
+    private static volatile Map<String, AlphaMask> masks;
+
+    private BiPack() {
+    }
+
+    /**
+     * Returns the pixel sizes available in the pack.
+     *
+     * @return the packed sizes, empty if there is no pack
+     */
+    public static Set<Integer> getSizes() {
+        Set<Integer> sizes = new TreeSet<>();
+        for (AlphaMask mask : masks().values()) {
+            sizes.add(mask.getWidth());
+        }
+        return sizes;
+    }
+
+    /**
+     * Returns the packed mask of an icon if it was pre-rendered at exactly the requested size.
+     *
+     * @param url    the URL of the SVG file
+     * @param width  the requested width in logical pixels
+     * @param height the requested height in logical pixels
+     * @param scale  the output scale
+     * @return the mask, or null if the pack does not hold it
+     */
+    static AlphaMask getMask(String url, Double width, Double height, double scale) {
+        if (width == null || !width.equals(height) || !url.startsWith(SvgLoader.BI_ICON_PATH)) {
+            return null;
+        }
+        double pixels = width * scale;
+        if (pixels != Math.rint(pixels)) {
+            return null;
+        }
+        return masks().get(key(url, (int) pixels));
+    }
+
+    /**
+     * Renders every single-color icon at the given pixel sizes and writes them as a pack.
+     *
+     * @param out   the stream to write to
+     * @param sizes the pixel sizes to render
+     * @throws IOException if rendering or writing fails
+     */
+    static void write(OutputStream out, int[] sizes) throws IOException {
+        SvgLoader loader = SvgLoader.getInstance();
+        // only icons tinted from a mask and black by default may be served from the pack
+        List<String> urls = new ArrayList<>();
+        for (Bi bi : Bi.values()) {
+            String url = SvgLoader.BI_ICON_PATH + bi.getIcon() + ".svg";
+            if (Color.BLACK.equals(loader.singleColor(url))) {
+                urls.add(url);
+            } else {
+                log.warning("Not packing " + url + ", it is not a single black color");
+            }
+        }
+        try (DataOutputStream data = new DataOutputStream(new GZIPOutputStream(out))) {
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(urls.size() * sizes.length);
+            for (String url : urls) {
+                for (int size : sizes) {
+                    AlphaMask mask = loader.renderAlphaMask(url, false, (double) size, (double) size, 1.0);
+                    data.writeUTF(url);
+                    data.writeInt(size);
+                    data.writeInt(mask.getWidth());
+                    data.writeInt(mask.getHeight());
+                    data.write(mask.getAlpha());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the packed masks, reading the pack on first use.
+     *
+     * @return the masks by url and size
+     */
+    private static Map<String, AlphaMask> masks() {
+        Map<String, AlphaMask> loaded = masks;
+        if (loaded == null) {
+            synchronized (BiPack.class) {
+                loaded = masks;
+                if (loaded == null) {
+                    loaded = disabled ? Collections.emptyMap() : read();
+                    masks = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Reads the pack from the classpath.
+     *
+     * @return the masks by url and size, empty if there is no readable pack
+     */
+    private static Map<String, AlphaMask> read() {
+        Map<String, AlphaMask> loaded = new HashMap<>();
+        InputStream in = BiPack.class.getResourceAsStream(PACK_PATH);
+        if (in == null) {
+            return loaded;
+        }
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)))) {
+            if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+                log.log(Level.WARNING, "Ignoring icon pack with unknown format: {0}", PACK_PATH);
+                return loaded;
+            }
+            int count = data.readInt();
+            for (int i = 0; i < count; i++) {
+                String url = data.readUTF();
+                int size = data.readInt();
+                int width = data.readInt();
+                int height = data.readInt();
+                byte[] alpha = new byte[width * height];
+                data.readFully(alpha);
+                loaded.put(key(url, size), new AlphaMask(width, height, alpha));
+            }
+        } catch (IOException ex) {
+            log.log(Level.WARNING, "Error reading icon pack", ex);
+            loaded.clear();
+        }
+        return loaded;
+    }
+
+    /**
+     * Builds the lookup key of a packed mask.
+     *
+     * @param url  the URL of the SVG file
+     * @param size the pixel size
+     * @return the key
+     */
+    private static String key(String url, int size) {
+        return url + '@' + size;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Build step writing the pre-rendered {@link BiPack}. It is run by Maven in the
+ * {@code process-classes} phase with the output file and a comma separated list of pixel sizes.
+ * It is only launched from the class path, so it stays out of the exported API.
+ */
+final class BiPackGenerator {
+
+    private BiPackGenerator() {
+    }
+
+    /**
+     * Writes the icon pack.
+     *
+     * @param args the output file and the comma separated pixel sizes, e.g. {@code 16,24,32,48}
+     * @throws IOException if rendering or writing fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("usage: BiPackGenerator <output file> <sizes>");
+        }
+        Path output = Paths.get(args[0]);
+        int[] sizes = Arrays.stream(args[1].split(","))
+                .map(String::trim)
+                .filter(size -> !size.isEmpty())
+                .mapToInt(Integer::parseInt)
+                .distinct()
+                .toArray();
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        try (OutputStream out = Files.newOutputStream(output)) {
+            BiPack.write(out, sizes);
+        }
+    }
+}
@@ -15,19 +15,34 @@
  */
 package com.fluxvend.svgfx.utils;
 
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.apache.batik.gvt.renderer.ImageRenderer;
+import org.apache.batik.gvt.renderer.StaticRenderer;
 import org.apache.batik.transcoder.TranscoderException;
 import org.apache.batik.transcoder.TranscoderOutput;
 import org.apache.batik.transcoder.image.ImageTranscoder;
 
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.nio.IntBuffer;
+import java.util.Arrays;
 
 /**
+ * Batik transcoder rendering into an ARGB {@link BufferedImage}, which can be handed to JavaFX
+ * with {@link #toFXImage(BufferedImage)} without the Swing bridge.
  *
  * @author obinna.asuzu
  */
 public class BufferedImageTranscoder extends ImageTranscoder {
 
     private BufferedImage img = null;
+    private PooledRenderer renderer;
+    private boolean pooledImages;
     
     BufferedImageTranscoder(double width, double height){
         this.width = (float) width;
@@ -39,18 +54,194 @@ public class BufferedImageTranscoder extends ImageTranscoder {
         this.height = height;
     }
 
+    /**
+     * Creates a transcoder rendering into premultiplied images taken from the {@link RasterPool}.
+     * Its renderings must be copied out and handed back with {@link RasterPool#release(BufferedImage)}.
+     *
+     * @return the transcoder
+     */
+    static BufferedImageTranscoder pooled() {
+        BufferedImageTranscoder trans = new BufferedImageTranscoder(0, 0);
+        trans.pooledImages = true;
+        return trans;
+    }
+
     @Override
     public BufferedImage createImage(int width, int height) {
+        if (pooledImages) {
+            return RasterPool.acquire(width, height);
+        }
         BufferedImage bi = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
         return bi;
     }
 
+    /**
+     * Returns the renderer of this transcoder with an off-screen raster from the {@link RasterPool}.
+     * Batik asks for a new renderer on every transcode, which would allocate a new off-screen raster
+     * each time, so renderings of the same or a smaller size draw into a recycled one instead. The
+     * raster goes back to the pool once the rendering is copied out, so idle transcoders hold none.
+     *
+     * @return the renderer
+     */
+    @Override
+    protected ImageRenderer createRenderer() {
+        if (renderer == null) {
+            renderer = new PooledRenderer();
+        }
+        if (width > 0 && height > 0) {
+            renderer.reuse(RasterPool.acquireRaster((int) Math.ceil(width), (int) Math.ceil(height)));
+        }
+        return renderer;
+    }
+
     @Override
     public void writeImage(BufferedImage img, TranscoderOutput to) throws TranscoderException {
         this.img = img;
+        if (renderer != null) {
+            renderer.release();
+        }
     }
 
     public BufferedImage getBufferedImage() {
         return img;
     }
+
+    /**
+     * Sets the size of the next rendering, so a transcoder confined to one thread can be reused.
+     *
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     */
+    void setSize(double width, double height) {
+        this.width = (float) width;
+        this.height = (float) height;
+    }
+
+    /**
+     * Returns the rendered image and forgets it, so a reused transcoder does not keep it alive.
+     *
+     * @return the rendered image, or null if nothing was rendered
+     */
+    BufferedImage takeBufferedImage() {
+        BufferedImage rendered = img;
+        img = null;
+        return rendered;
+    }
+
+    /**
+     * Returns the rendered image as a JavaFX image.
+     *
+     * @return the JavaFX image, or null if nothing was rendered
+     */
+    public WritableImage getFXImage() {
+        return img == null ? null : toFXImage(img);
+    }
+
+    /**
+     * Copies a BufferedImage into a new JavaFX image. Integer ARGB images are written straight
+     * from their data buffer, other types are converted to premultiplied ARGB first.
+     *
+     * @param image the image to convert
+     * @return the JavaFX image
+     */
+    public static WritableImage toFXImage(BufferedImage image) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_ARGB_PRE && type != BufferedImage.TYPE_INT_ARGB) {
+            BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g2d = converted.createGraphics();
+            g2d.drawImage(image, 0, 0, null);
+            g2d.dispose();
+            image = converted;
+            type = BufferedImage.TYPE_INT_ARGB_PRE;
+        }
+        WritableRaster raster = image.getRaster();
+        DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+        SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        int offset = buffer.getOffset() + model.getOffset(
+                raster.getMinX() - raster.getSampleModelTranslateX(),
+                raster.getMinY() - raster.getSampleModelTranslateY());
+        PixelFormat<IntBuffer> format = type == BufferedImage.TYPE_INT_ARGB_PRE
+                ? PixelFormat.getIntArgbPreInstance()
+                : PixelFormat.getIntArgbInstance();
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        WritableImage fxImage = new WritableImage(width, height);
+        fxImage.getPixelWriter().setPixels(0, 0, width, height, format, buffer.getData(), offset, model.getScanlineStride());
+        return fxImage;
+    }
+
+    /**
+     * Copies a JavaFX image into a new non-premultiplied ARGB BufferedImage.
+     *
+     * @param image the image to convert
+     * @return the BufferedImage
+     */
+    public static BufferedImage fromFXImage(Image image) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] data = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), data, 0, width);
+        return bufferedImage;
+    }
+
+    /**
+     * Static renderer drawing into an off-screen raster recycled through the {@link RasterPool}.
+     */
+    private static final class PooledRenderer extends StaticRenderer {
+
+        private PooledRenderer() {
+            // a double buffered renderer alternates between two rasters
+            setDoubleBuffered(false);
+        }
+
+        @Override
+        protected void updateWorkingBuffers() {
+            WritableRaster kept = workingBaseRaster;
+            super.updateWorkingBuffers();
+            if (rootCR == null) {
+                // nothing is painted and Batik drops its rasters, but the next rendering can use this one
+                workingBaseRaster = kept;
+            }
+        }
+
+        /**
+         * Makes the renderer draw into a pooled raster, cleared so nothing of its previous
+         * rendering shows through. Batik allocates a new one if it is too small.
+         *
+         * @param raster the raster, or null to let Batik allocate one
+         */
+        private void reuse(WritableRaster raster) {
+            workingBaseRaster = raster;
+            currentBaseRaster = raster;
+            if (raster == null) {
+                return;
+            }
+            if (raster.getDataBuffer() instanceof DataBufferInt) {
+                for (int[] bank : ((DataBufferInt) raster.getDataBuffer()).getBankData()) {
+                    Arrays.fill(bank, 0);
+                }
+            } else {
+                int[] row = new int[raster.getWidth() * raster.getNumBands()];
+                for (int y = 0; y < raster.getHeight(); y++) {
+                    raster.setPixels(raster.getMinX(), raster.getMinY() + y, raster.getWidth(), 1, row);
+                }
+            }
+        }
+
+        /**
+         * Drops the rendered tree once the rendering is copied out, and hands the raster back to the pool.
+         */
+        private void release() {
+            setTree(null);
+            RasterPool.releaseRaster(workingBaseRaster);
+            workingBaseRaster = null;
+            workingRaster = null;
+            workingOffScreen = null;
+            currentBaseRaster = null;
+            currentRaster = null;
+            currentOffScreen = null;
+        }
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * DownloadBackoff remembers failing downloads so they are not retried on every load.
+ * A failing url, or a whole host that cannot be reached, is skipped for a delay that doubles
+ * with each consecutive failure, up to a maximum, and is forgotten after the next success.
+ */
+final class DownloadBackoff {
+
+    private static final int MAX_ENTRIES = 4096;
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final Map<String, Failure> failures = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Failure> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Creates a backoff.
+     *
+     * @param initialDelayMillis the delay after the first failure
+     * @param maxDelayMillis     the longest delay
+     */
+    DownloadBackoff(long initialDelayMillis, long maxDelayMillis) {
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Checks whether a url, or its host, is still backing off.
+     *
+     * @param url the url
+     * @return true if the download should not be attempted yet
+     */
+    synchronized boolean isBlocked(String url) {
+        long now = System.currentTimeMillis();
+        return isBlocked(url, now) || isBlocked(hostKey(url), now);
+    }
+
+    /**
+     * Records a failed download.
+     *
+     * @param url         the url
+     * @param hostFailure whether the host could not be reached, which backs off every url of the host
+     */
+    synchronized void failed(String url, boolean hostFailure) {
+        String key = hostFailure ? hostKey(url) : url;
+        if (key == null) {
+            return;
+        }
+        Failure failure = failures.get(key);
+        int count = failure == null ? 1 : failure.count + 1;
+        long delay = initialDelayMillis << Math.min(count - 1, 30);
+        if (delay <= 0 || delay > maxDelayMillis) {
+            delay = maxDelayMillis;
+        }
+        failures.put(key, new Failure(count, System.currentTimeMillis() + delay));
+    }
+
+    /**
+     * Records a successful download, forgetting earlier failures of the url and its host.
+     *
+     * @param url the url
+     */
+    synchronized void succeeded(String url) {
+        failures.remove(url);
+        String host = hostKey(url);
+        if (host != null) {
+            failures.remove(host);
+        }
+    }
+
+    /**
+     * Checks whether a key is still backing off.
+     *
+     * @param key the url or host key
+     * @param now the current time
+     * @return true if it is backing off
+     */
+    private boolean isBlocked(String key, long now) {
+        Failure failure = key == null ? null : failures.get(key);
+        return failure != null && now < failure.retryAt;
+    }
+
+    /**
+     * Builds the key of a url's host.
+     *
+     * @param url the url
+     * @return the key, or null if the url has no host
+     */
+    private static String hostKey(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? null : "host:" + host;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Consecutive failures of a url or host.
+     */
+    private static final class Failure {
+        private final int count;
+        private final long retryAt;
+
+        private Failure(int count, long retryAt) {
+            this.count = count;
+            this.retryAt = retryAt;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import com.fluxvend.svgfx.icons.Bi;
+import javafx.application.Platform;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * IconAtlas packs every {@link Bi} icon rendered at one size and color into a single shared image.
+ * Icon views show their icon through a viewport into it, so an icon-heavy screen uploads one
+ * texture per size and color instead of one per icon.
+ * <p>
+ * Icons are laid out in a fixed grid by their ordinal, so the viewport of an icon can be
+ * computed without the atlas. Cells are rendered lazily, only for the icons actually requested,
+ * and concurrent requests for the same cell share one render.
+ * <p>
+ * An atlas larger than the whole atlas cache could never be kept, so icons of such sizes are
+ * served as individual images instead, without a viewport.
+ */
+public final class IconAtlas {
+
+    /**
+     * Default capacity of the atlas cache, overridable with the
+     * {@code svgfx.atlasCache.maxBytes} system property.
+     */
+    public static final long DEFAULT_ATLAS_CACHE_BYTES = 16L * 1024 * 1024;
+
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final int PADDING = 1;
+    private static final int COLUMNS = (int) Math.ceil(Math.sqrt(Bi.values().length));
+    private static final int ROWS = (Bi.values().length + COLUMNS - 1) / COLUMNS;
+
+    private static final WeightedCache<Key, Sheet> atlases =
+            new WeightedCache<>(Long.getLong("svgfx.atlasCache.maxBytes", DEFAULT_ATLAS_CACHE_BYTES),
+                    sheet -> ImageCache.sizeOf(sheet.image));
+
+    private IconAtlas() {
+    }
+
+    /**
+     * Returns the atlas of icons at a size and color, rendering the cell of an icon on first use,
+     * or the image of the icon alone if the atlas would not fit the atlas cache.
+     * The cell is written on the JavaFX application thread; when called from a background
+     * thread the write is queued before any later {@code Platform.runLater} of the caller,
+     * together with the other cells rendered meanwhile.
+     *
+     * @param bi         the icon that must be present in the atlas
+     * @param colorClass the color class to apply
+     * @param size       the icon size in logical pixels
+     * @param scale      the output scale
+     * @return the atlas image, or the icon image if there is no atlas for this size
+     */
+    public static Image getImage(Bi bi, String colorClass, double size, double scale) {
+        SvgLoader loader = SvgLoader.getInstance();
+        if (!fits(size, scale)) {
+            return loader.loadSvgImage(SvgLoader.BI_ICON_PATH + bi.getIcon() + ".svg", colorClass, false, size, size, scale);
+        }
+        ThemeColors theme = loader.themeFor(colorClass);
+        Key key = new Key(colorClass, theme, size, scale);
+        Sheet sheet;
+        synchronized (atlases) {
+            sheet = atlases.get(key);
+            if (sheet == null) {
+                sheet = new Sheet(size, scale);
+                atlases.put(key, sheet);
+            }
+        }
+        sheet.ensure(bi, () -> render(loader, bi, colorClass, theme, size, scale));
+        return sheet.image;
+    }
+
+    /**
+     * Returns the region of the atlas holding an icon.
+     *
+     * @param bi    the icon
+     * @param size  the icon size in logical pixels
+     * @param scale the output scale
+     * @return the viewport in atlas pixels, or null if there is no atlas for this size
+     */
+    public static Rectangle2D getViewport(Bi bi, double size, double scale) {
+        if (!fits(size, scale)) {
+            return null;
+        }
+        return cell(bi, size, scale);
+    }
+
+    /**
+     * Returns the region of an atlas holding an icon.
+     *
+     * @param bi    the icon
+     * @param size  the icon size in logical pixels
+     * @param scale the output scale
+     * @return the cell in atlas pixels
+     */
+    private static Rectangle2D cell(Bi bi, double size, double scale) {
+        int pixels = iconPixels(size, scale);
+        int cell = pixels + PADDING;
+        int column = bi.ordinal() % COLUMNS;
+        int row = bi.ordinal() / COLUMNS;
+        return new Rectangle2D(column * cell, row * cell, pixels, pixels);
+    }
+
+    /**
+     * Sets the capacity of the atlas cache.
+     *
+     * @param maxBytes the capacity in pixel bytes
+     */
+    public static void setCacheCapacity(long maxBytes) {
+        atlases.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * Removes every cached atlas.
+     */
+    public static void invalidate() {
+        atlases.invalidateAll();
+    }
+
+    /**
+     * Evicts the cells of an icon from every cached atlas, so they are rendered again on next use.
+     *
+     * @param url the URL of the SVG file, ignored unless it is a {@link Bi} icon
+     */
+    static void invalidate(String url) {
+        for (Bi bi : Bi.values()) {
+            if (url.equals(SvgLoader.BI_ICON_PATH + bi.getIcon() + ".svg")) {
+                for (Sheet sheet : atlases.values()) {
+                    sheet.evict(bi);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether an atlas of icons at a size fits the atlas cache.
+     *
+     * @param size  the icon size in logical pixels
+     * @param scale the output scale
+     * @return true if the atlas can be cached
+     */
+    private static boolean fits(double size, double scale) {
+        return sheetBytes(size, scale) <= atlases.getMaxBytes();
+    }
+
+    /**
+     * Returns the memory held by an atlas of icons at a size.
+     *
+     * @param size  the icon size in logical pixels
+     * @param scale the output scale
+     * @return the size in bytes
+     */
+    private static long sheetBytes(double size, double scale) {
+        long cell = iconPixels(size, scale) + PADDING;
+        return (COLUMNS * cell - PADDING) * (ROWS * cell - PADDING) * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Renders a single icon for its atlas cell.
+     *
+     * @param loader     the loader to render with
+     * @param bi         the icon
+     * @param colorClass the color class to apply
+     * @param theme      the theme colors to resolve {@code -fx-} color classes with
+     * @param size       the icon size in logical pixels
+     * @param scale      the output scale
+     * @return the icon image
+     */
+    private static Image render(SvgLoader loader, Bi bi, String colorClass, ThemeColors theme, double size, double scale) {
+        return loader.renderSvgImage(SvgLoader.BI_ICON_PATH + bi.getIcon() + ".svg",
+                colorClass, theme, false, size, size, scale);
+    }
+
+    /**
+     * Returns the pixel size of an icon cell, matching the size Batik rasterizes to.
+     *
+     * @param size  the icon size in logical pixels
+     * @param scale the output scale
+     * @return the size in pixels
+     */
+    private static int iconPixels(double size, double scale) {
+        return Math.max(1, (int) (size * scale + 0.5));
+    }
+
+    /**
+     * An atlas image together with the cells already rendered into it.
+     */
+    private static final class Sheet {
+        private final WritableImage image;
+        private final double size;
+        private final double scale;
+        private final BitSet rendered = new BitSet();
+        private final Map<Bi, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+        private final Queue<CellWrite> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+        private Sheet(double size, double scale) {
+            int cell = iconPixels(size, scale) + PADDING;
+            this.image = new WritableImage(COLUMNS * cell - PADDING, ROWS * cell - PADDING);
+            this.size = size;
+            this.scale = scale;
+        }
+
+        /**
+         * Renders the cell of an icon unless it is already rendered or being rendered,
+         * and waits for it.
+         *
+         * @param bi     the icon
+         * @param render renders the icon image
+         */
+        private void ensure(Bi bi, Supplier<Image> render) {
+            synchronized (rendered) {
+                if (rendered.get(bi.ordinal())) {
+                    return;
+                }
+            }
+            CompletableFuture<Void> flight = new CompletableFuture<>();
+            CompletableFuture<Void> existing = inFlight.putIfAbsent(bi, flight);
+            if (existing != null) {
+                try {
+                    existing.join();
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                }
+                return;
+            }
+            try {
+                write(cell(bi, size, scale), render.get());
+                synchronized (rendered) {
+                    rendered.set(bi.ordinal());
+                }
+                flight.complete(null);
+            } catch (RuntimeException e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(bi, flight);
+            }
+        }
+
+        /**
+         * Forgets that the cell of an icon is rendered.
+         *
+         * @param bi the icon
+         */
+        private void evict(Bi bi) {
+            synchronized (rendered) {
+                rendered.clear(bi.ordinal());
+            }
+        }
+
+        /**
+         * Copies an icon into its cell on the JavaFX application thread, since the atlas may already
+         * be shown. Every write to a shown image uploads the whole atlas texture again, so cells
+         * rendered in the background are queued and copied together by a single task.
+         *
+         * @param viewport the cell
+         * @param icon     the icon image
+         */
+        private void write(Rectangle2D viewport, Image icon) {
+            pending.add(new CellWrite(viewport, icon));
+            if (Platform.isFxApplicationThread()) {
+                flush();
+                return;
+            }
+            if (flushScheduled.compareAndSet(false, true)) {
+                try {
+                    Platform.runLater(this::flush);
+                } catch (IllegalStateException e) {
+                    // toolkit not running, so nothing can be showing the atlas yet
+                    flush();
+                }
+            }
+        }
+
+        /**
+         * Copies every queued icon into its cell.
+         */
+        private void flush() {
+            flushScheduled.set(false);
+            CellWrite write;
+            while ((write = pending.poll()) != null) {
+                Rectangle2D viewport = write.viewport;
+                int width = (int) Math.min(write.icon.getWidth(), viewport.getWidth());
+                int height = (int) Math.min(write.icon.getHeight(), viewport.getHeight());
+                image.getPixelWriter().setPixels((int) viewport.getMinX(), (int) viewport.getMinY(),
+                        width, height, write.icon.getPixelReader(), 0, 0);
+            }
+        }
+    }
+
+    /**
+     * An icon waiting to be copied into its atlas cell.
+     */
+    private static final class CellWrite {
+        private final Rectangle2D viewport;
+        private final Image icon;
+
+        private CellWrite(Rectangle2D viewport, Image icon) {
+            this.viewport = viewport;
+            this.icon = icon;
+        }
+    }
+
+    /**
+     * Identifies an atlas by color, size and scale.
+     */
+    private static final class Key {
+        private final String colorClass;
+        private final ThemeColors theme;
+        private final double size;
+        private final double scale;
+
+        private Key(String colorClass, ThemeColors theme, double size, double scale) {
+            this.colorClass = colorClass;
+            this.theme = theme;
+            this.size = size;
+            this.scale = scale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return size == other.size
+                    && scale == other.scale
+                    && Objects.equals(colorClass, other.colorClass)
+                    && theme == other.theme;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(colorClass, theme, size, scale);
+        }
+    }
+}
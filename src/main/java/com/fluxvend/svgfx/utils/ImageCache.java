@@ -0,0 +1,49 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import javafx.scene.image.Image;
+
+/**
+ * ImageCache is a thread-safe in-memory cache of finished JavaFX images.
+ * Entries are weighed by their pixel bytes and evicted in least-recently-used order
+ * once the total exceeds the configured capacity.
+ *
+ * @param <K> the type of the cache keys
+ */
+class ImageCache<K> extends WeightedCache<K, Image> {
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /**
+     * Creates a cache holding at most the given number of pixel bytes.
+     *
+     * @param maxBytes the capacity in bytes
+     */
+    public ImageCache(long maxBytes) {
+        super(maxBytes, ImageCache::sizeOf);
+    }
+
+    /**
+     * Estimates the pixel bytes held by an image.
+     *
+     * @param image the image
+     * @return the size in bytes
+     */
+    static long sizeOf(Image image) {
+        return (long) Math.ceil(image.getWidth()) * (long) Math.ceil(image.getHeight()) * BYTES_PER_PIXEL;
+    }
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Predicate;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ImageDiskCache is a size-bounded directory of downloaded images. Files are named by a hash of
+ * their key, written to a temporary file and renamed in place, and evicted in least-recently-used
+ * order once the directory grows past its capacity.
+ * <p>
+ * Files are never seen half written. Callers that keep an entry and its metadata sidecar, e.g. the
+ * HTTP validators used to revalidate it, consistent with each other lock the key with
+ * {@link #lock(String)} around reading or writing both, but never across network I/O. Temporary files left behind by an
+ * earlier run are deleted when the directory is first indexed.
+ */
+class ImageDiskCache {
+
+    private static Logger log = Logger.getLogger(ImageDiskCache.class.getName());
+
+    private static final String DEFAULT_SUFFIX = ".png";
+    private static final String METADATA_SUFFIX = ".meta";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int LOCK_STRIPES = 64;
+    // file times come from a coarser clock, so a file written just now can look older than the cache
+    private static final long STALE_TEMP_MILLIS = 60 * 1000L;
+
+    private final Path directory;
+    private final String suffix;
+    private final long created = System.currentTimeMillis();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final Map<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> metadataSizes = new HashMap<>();
+    private long maxBytes;
+    private long currentBytes;
+    private boolean indexed;
+
+    /**
+     * Creates a cache in a directory, which is created on first write.
+     *
+     * @param directory the cache directory
+     * @param maxBytes  the capacity in bytes
+     */
+    public ImageDiskCache(Path directory, long maxBytes) {
+        this(directory, maxBytes, DEFAULT_SUFFIX);
+    }
+
+    /**
+     * Creates a cache in a directory whose entry files end with the given suffix.
+     *
+     * @param directory the cache directory
+     * @param maxBytes  the capacity in bytes
+     * @param suffix    the suffix of entry files, e.g. {@code .png}
+     */
+    ImageDiskCache(Path directory, long maxBytes, String suffix) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.suffix = suffix;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Get the cache directory
+     *
+     * @return the directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the capacity
+     *
+     * @return the capacity in bytes
+     */
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Set the capacity, evicting files if the cache is now over it
+     *
+     * @param maxBytes the capacity in bytes
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        ensureIndexed();
+        evict();
+    }
+
+    /**
+     * Get the bytes currently stored
+     *
+     * @return the stored bytes
+     */
+    public synchronized long getCurrentBytes() {
+        ensureIndexed();
+        return currentBytes;
+    }
+
+    /**
+     * Returns the lock guarding a key. Locks are striped, so unrelated keys may share one;
+     * hold it only for short disk reads and writes.
+     *
+     * @param key the entry key, e.g. the image url
+     * @return the lock
+     */
+    public ReentrantLock lock(String key) {
+        return locks[Math.floorMod(key.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Returns the file an entry is stored in.
+     *
+     * @param key the entry key
+     * @return the file, which may not exist
+     */
+    public Path file(String key) {
+        return directory.resolve(name(key) + suffix);
+    }
+
+    /**
+     * Returns the file name of an entry without its suffix.
+     *
+     * @param key the entry key
+     * @return the hex encoded hash of the key
+     */
+    String name(String key) {
+        return Hashes.sha256(key);
+    }
+
+    /**
+     * Reads an entry, marking it as recently used.
+     *
+     * @param key the entry key
+     * @return the stored bytes, or null if the entry does not exist
+     */
+    public byte[] read(String key) {
+        Path file = file(key);
+        try {
+            byte[] data = Files.readAllBytes(file);
+            touch(file);
+            return data;
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) {
+            log.log(Level.WARNING, "Error reading cached image " + file, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Returns when an entry was written.
+     *
+     * @param key the entry key
+     * @return the time in milliseconds, or 0 if the entry does not exist
+     */
+    public long lastModified(String key) {
+        return file(key).toFile().lastModified();
+    }
+
+    /**
+     * Writes an entry atomically and evicts older entries if the cache is over capacity.
+     * The rename and the size bookkeeping happen together, so concurrent evictions never
+     * count a file that is gone or miss one that was written.
+     *
+     * @param key  the entry key
+     * @param data the bytes to store
+     * @throws IOException if the entry cannot be written
+     */
+    public void write(String key, byte[] data) throws IOException {
+        Path file = file(key);
+        Path temp = writeTemporary(file, data);
+        try {
+            synchronized (this) {
+                ensureIndexed();
+                moveInPlace(temp, file);
+                Long previous = index.put(file.getFileName().toString(), (long) data.length);
+                currentBytes += data.length - (previous == null ? 0 : previous);
+                evict();
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads the metadata stored next to an entry.
+     *
+     * @param key the entry key
+     * @return the metadata, empty if none was stored
+     */
+    public Properties readMetadata(String key) {
+        Properties metadata = new Properties();
+        Path file = metadataFile(file(key));
+        try (InputStream in = Files.newInputStream(file)) {
+            metadata.load(in);
+        } catch (NoSuchFileException ex) {
+            // no metadata stored
+        } catch (IOException ex) {
+            log.log(Level.WARNING, "Error reading cache metadata " + file, ex);
+        }
+        return metadata;
+    }
+
+    /**
+     * Writes the metadata stored next to an entry atomically. Its size counts towards the
+     * capacity, and it is dropped if the entry itself is no longer stored.
+     *
+     * @param key      the entry key
+     * @param metadata the metadata
+     * @throws IOException if the metadata cannot be written
+     */
+    public void writeMetadata(String key, Properties metadata) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        metadata.store(out, null);
+        byte[] data = out.toByteArray();
+        Path file = file(key);
+        Path sidecar = metadataFile(file);
+        Path temp = writeTemporary(sidecar, data);
+        try {
+            synchronized (this) {
+                ensureIndexed();
+                String name = file.getFileName().toString();
+                if (!index.containsKey(name)) {
+                    return;
+                }
+                moveInPlace(temp, sidecar);
+                Long previous = metadataSizes.put(name, (long) data.length);
+                currentBytes += data.length - (previous == null ? 0 : previous);
+                evict();
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Deletes an entry.
+     *
+     * @param key the entry key
+     */
+    public synchronized void remove(String key) {
+        Path file = file(key);
+        try {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(metadataFile(file));
+        } catch (IOException ex) {
+            log.log(Level.WARNING, "Error deleting cached image " + file, ex);
+        }
+        forget(file.getFileName().toString());
+    }
+
+    /**
+     * Deletes every entry.
+     */
+    public void clear() {
+        removeIf(name -> true);
+    }
+
+    /**
+     * Deletes the entries whose file name matches a filter.
+     *
+     * @param filter tests the file name of an entry, including its suffix
+     */
+    synchronized void removeIf(Predicate<String> filter) {
+        ensureIndexed();
+        Iterator<Map.Entry<String, Long>> entries = index.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Long> entry = entries.next();
+            if (!filter.test(entry.getKey())) {
+                continue;
+            }
+            Path file = directory.resolve(entry.getKey());
+            try {
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(metadataFile(file));
+            } catch (IOException ex) {
+                log.log(Level.WARNING, "Error deleting cached image " + file, ex);
+                continue;
+            }
+            currentBytes -= entry.getValue() + sidecarBytes(entry.getKey());
+            entries.remove();
+        }
+    }
+
+    /**
+     * Writes the content of a file to a temporary file in the same directory,
+     * to be renamed in place with {@link #moveInPlace(Path, Path)}.
+     *
+     * @param file the file to write
+     * @param data the content
+     * @return the temporary file
+     * @throws IOException if the file cannot be written
+     */
+    private static Path writeTemporary(Path file, byte[] data) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            Files.write(temp, data);
+        } catch (IOException ex) {
+            Files.deleteIfExists(temp);
+            throw ex;
+        }
+        return temp;
+    }
+
+    /**
+     * Renames a temporary file in place, so readers see either the old or the new content,
+     * never a partial file.
+     *
+     * @param temp the temporary file
+     * @param file the file to replace
+     * @throws IOException if the file cannot be moved
+     */
+    private static void moveInPlace(Path temp, Path file) throws IOException {
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Drops an entry from the index and the stored total.
+     *
+     * @param name the file name of the entry
+     */
+    private void forget(String name) {
+        Long size = index.remove(name);
+        if (size != null) {
+            currentBytes -= size;
+        }
+        currentBytes -= sidecarBytes(name);
+    }
+
+    /**
+     * Forgets the metadata size of an entry.
+     *
+     * @param name the file name of the entry
+     * @return the bytes its metadata took, 0 if it had none
+     */
+    private long sidecarBytes(String name) {
+        Long size = metadataSizes.remove(name);
+        return size == null ? 0 : size;
+    }
+
+    /**
+     * Returns the metadata sidecar of an entry file.
+     *
+     * @param file the entry file
+     * @return the sidecar file
+     */
+    private Path metadataFile(Path file) {
+        String name = file.getFileName().toString();
+        return file.resolveSibling(name.substring(0, name.length() - suffix.length()) + METADATA_SUFFIX);
+    }
+
+    /**
+     * Marks a file as recently used.
+     *
+     * @param file the file
+     */
+    private synchronized void touch(Path file) {
+        ensureIndexed();
+        index.get(file.getFileName().toString());
+    }
+
+    /**
+     * Deletes the least recently used files until the cache fits its capacity. Callers hold the lock.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> entries = index.entrySet().iterator();
+        while (currentBytes > maxBytes && entries.hasNext()) {
+            Map.Entry<String, Long> eldest = entries.next();
+            Path file = directory.resolve(eldest.getKey());
+            try {
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(metadataFile(file));
+            } catch (IOException ex) {
+                log.log(Level.WARNING, "Error evicting cached image " + file, ex);
+                continue;
+            }
+            currentBytes -= eldest.getValue() + sidecarBytes(eldest.getKey());
+            entries.remove();
+        }
+    }
+
+    /**
+     * Builds the index from the files already on disk, oldest first, on first use.
+     * Temporary files from well before this cache was created were left by an interrupted write and are deleted.
+     */
+    private void ensureIndexed() {
+        if (indexed) {
+            return;
+        }
+        indexed = true;
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + suffix)) {
+            stream.forEach(files::add);
+        } catch (IOException ex) {
+            log.log(Level.WARNING, "Error indexing image cache " + directory, ex);
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + TEMP_SUFFIX)) {
+            for (Path temp : stream) {
+                if (temp.toFile().lastModified() < created - STALE_TEMP_MILLIS) {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        } catch (IOException ex) {
+            log.log(Level.WARNING, "Error deleting temporary files in " + directory, ex);
+        }
+        files.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long size = file.toFile().length();
+            long sidecar = metadataFile(file).toFile().length();
+            index.put(name, size);
+            if (sidecar > 0) {
+                metadataSizes.put(name, sidecar);
+            }
+            currentBytes += size + sidecar;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ImageLoadQueue runs background image loads on daemon threads, highest priority first and, within
+ * a priority, newest first. A fast scroll through a long list therefore loads the cells in view
+ * before the ones already scrolled past, and cells can cancel loads they no longer need.
+ */
+final class ImageLoadQueue {
+
+    private static Logger log = Logger.getLogger(ImageLoadQueue.class.getName());
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Creates a queue.
+     *
+     * @param threads the number of loads that run at once
+     * @param name    the prefix of the thread names
+     */
+    ImageLoadQueue(int threads, String name) {
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, name + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues a load.
+     *
+     * @param priority the priority, higher runs first
+     * @param load     the load to run
+     * @param callback receives the result unless the load was cancelled, may be null
+     * @param <T>      the type of the result
+     * @return a handle to wait for or cancel the load
+     */
+    <T> Future<T> submit(int priority, Callable<T> load, Consumer<T> callback) {
+        Load<T> task = new Load<>(priority, sequence.incrementAndGet(), load, callback);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Sets how many loads run at once.
+     *
+     * @param threads the number of threads
+     */
+    synchronized void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+    }
+
+    /**
+     * Returns how many loads run at once.
+     *
+     * @return the number of threads
+     */
+    int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * A queued load, ordered by priority and then by recency.
+     *
+     * @param <T> the type of the result
+     */
+    private final class Load<T> extends FutureTask<T> implements Comparable<Load<?>> {
+        private final int priority;
+        private final long sequence;
+        private final Consumer<T> callback;
+
+        private Load(int priority, long sequence, Callable<T> load, Consumer<T> callback) {
+            super(load);
+            this.priority = priority;
+            this.sequence = sequence;
+            this.callback = callback;
+        }
+
+        @Override
+        protected void done() {
+            if (callback == null || isCancelled()) {
+                return;
+            }
+            try {
+                callback.accept(get());
+            } catch (Exception ex) {
+                log.log(Level.WARNING, "Error loading image", ex);
+            }
+        }
+
+        /**
+         * Cancels the load without ever interrupting it. A running load may own a download or a
+         * disk cache access other callers share, so it runs to completion and only its callback is
+         * suppressed; a queued load is dropped.
+         *
+         * @param mayInterruptIfRunning ignored, running loads are never interrupted
+         * @return false if the load already completed or was cancelled
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(false);
+            if (cancelled) {
+                // drop it from the queue now rather than when a thread reaches it
+                executor.remove(this);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public int compareTo(Load<?> other) {
+            if (priority != other.priority) {
+                return Integer.compare(other.priority, priority);
+            }
+            return Long.compare(other.sequence, sequence);
+        }
+    }
+}
@@ -15,7 +15,6 @@
  */
 package com.fluxvend.svgfx.utils;
 
-import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.Group;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -25,17 +24,32 @@ import org.apache.commons.lang3.StringUtils;
 
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.net.HttpURLConnection;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -49,7 +63,60 @@ public class Imagefx {
     
     private static Logger log = Logger.getLogger(Imagefx.class.getName());
 
-    private static final Executor executor = Executors.newFixedThreadPool(5);
+    /**
+     * Default number of images loaded at once, overridable with the {@code svgfx.imagefx.threads} system property.
+     */
+    public static final int DEFAULT_LOADER_THREADS = 5;
+
+    /**
+     * Priority of loads for content currently in view.
+     */
+    public static final int PRIORITY_VISIBLE = 10;
+
+    /**
+     * Priority of loads that do not say otherwise.
+     */
+    public static final int PRIORITY_NORMAL = 0;
+
+    private static final ImageLoadQueue loadQueue =
+            new ImageLoadQueue(Integer.getInteger("svgfx.imagefx.threads", DEFAULT_LOADER_THREADS), "imagefx-loader-");
+
+
+    /**
+     * Default capacity of the decoded image cache in front of the disk cache, overridable with the
+     * {@code svgfx.imagefx.memoryBytes} system property.
+     */
+    public static final long DEFAULT_MEMORY_CACHE_BYTES = 32L * 1024 * 1024;
+
+    private static final WeightedCache<MemoryKey, LoadedImage> memoryCache = new WeightedCache<>(
+            Long.getLong("svgfx.imagefx.memoryBytes", DEFAULT_MEMORY_CACHE_BYTES), loaded -> ImageCache.sizeOf(loaded.image));
+
+    private static final Map<MemoryKey, CompletableFuture<Image>> inFlight = new ConcurrentHashMap<>();
+
+    private static final Map<String, CompletableFuture<Download>> downloads = new ConcurrentHashMap<>();
+
+    private static final int CONNECT_TIMEOUT_MILLIS = Integer.getInteger("svgfx.imagefx.connectTimeoutMillis", 5000);
+    private static final int READ_TIMEOUT_MILLIS = Integer.getInteger("svgfx.imagefx.readTimeoutMillis", 10000);
+
+    // failing urls wait 10 seconds before the first retry, doubling up to 15 minutes
+    private static final DownloadBackoff backoff = new DownloadBackoff(
+            Long.getLong("svgfx.imagefx.retryMillis", 10_000L), Long.getLong("svgfx.imagefx.maxRetryMillis", 15 * 60_000L));
+
+    private static final ImageCache<Long> placeholders = new ImageCache<>(4L * 1024 * 1024);
+
+    private static final String META_ETAG = "etag";
+    private static final String META_LAST_MODIFIED = "last-modified";
+    private static final String META_VALIDATED = "validated";
+
+    /**
+     * Default capacity of the downloaded image cache, overridable with the
+     * {@code svgfx.imagefx.maxBytes} system property.
+     */
+    public static final long DEFAULT_DISK_CACHE_BYTES = 256L * 1024 * 1024;
+
+    private static volatile ImageDiskCache diskCache = new ImageDiskCache(
+            Paths.get(System.getProperty("svgfx.imagefx.dir", System.getProperty("user.home") + File.separator + ".imagecache")),
+            Long.getLong("svgfx.imagefx.maxBytes", DEFAULT_DISK_CACHE_BYTES));
 
 
     /**
@@ -71,13 +138,7 @@ public class Imagefx {
      * @param onImageLoaded a callback to handle the loaded image
      */
     public static void loadImageAsync(String imageUrl, int width, int height, Consumer<Image> onImageLoaded) {
-        executor.execute(() -> {
-            if (StringUtils.isBlank(imageUrl) || imageUrl.equals("null")) {
-                return;
-            }
-            Image image = loadImage(imageUrl, width, height);
-            onImageLoaded.accept(image);
-        });
+        submitImageLoad(imageUrl, width, height, PRIORITY_NORMAL, onImageLoaded);
     }
 
     /**
@@ -87,10 +148,68 @@ public class Imagefx {
      * @param onImageLoaded a callback to handle the loaded image
      */
     public static void loadImageAsync(String imageUrl, Consumer<Image> onImageLoaded) {
-        executor.execute(() -> {
-            Image image = loadImage(imageUrl);
-            onImageLoaded.accept(image);
-        });
+        submitImageLoad(imageUrl, onImageLoaded);
+    }
+
+    /**
+     * Queues an asynchronous load of an image with given dimensions.
+     *
+     * @param imageUrl      the URL of the image
+     * @param width         the width of the image
+     * @param height        the height of the image
+     * @param onImageLoaded a callback to handle the loaded image
+     * @return a handle to cancel the load, e.g. when a list cell is reused
+     */
+    public static Future<Image> submitImageLoad(String imageUrl, int width, int height, Consumer<Image> onImageLoaded) {
+        return submitImageLoad(imageUrl, width, height, PRIORITY_NORMAL, onImageLoaded);
+    }
+
+    /**
+     * Queues an asynchronous load of an image with given dimensions.
+     * Queued loads run highest priority first and, within a priority, newest first.
+     * The callback runs on a loader thread and is skipped if the load is cancelled.
+     *
+     * @param imageUrl      the URL of the image
+     * @param width         the width of the image
+     * @param height        the height of the image
+     * @param priority      the priority, e.g. {@link #PRIORITY_VISIBLE} for content in view
+     * @param onImageLoaded a callback to handle the loaded image
+     * @return a handle to cancel the load, e.g. when a list cell is reused
+     */
+    public static Future<Image> submitImageLoad(String imageUrl, int width, int height, int priority, Consumer<Image> onImageLoaded) {
+        if (StringUtils.isBlank(imageUrl) || imageUrl.equals("null")) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return loadQueue.submit(priority, () -> loadImage(imageUrl, width, height), onImageLoaded);
+    }
+
+    /**
+     * Queues an asynchronous load of an image with default dimensions.
+     *
+     * @param imageUrl      the URL of the image
+     * @param onImageLoaded a callback to handle the loaded image
+     * @return a handle to cancel the load, e.g. when a list cell is reused
+     */
+    public static Future<Image> submitImageLoad(String imageUrl, Consumer<Image> onImageLoaded) {
+        return loadQueue.submit(PRIORITY_NORMAL, () -> loadImage(imageUrl), onImageLoaded);
+    }
+
+    /**
+     * Sets how many images are loaded at once.
+     *
+     * @param threads the number of loader threads
+     */
+    public static void setLoaderThreads(int threads) {
+        loadQueue.setThreads(threads);
+    }
+
+    /**
+     * Returns how many images are loaded at once.
+     *
+     * @return the number of loader threads
+     */
+    public static int getLoaderThreads() {
+        return loadQueue.getThreads();
     }
 
     /**
@@ -114,64 +233,320 @@ public class Imagefx {
      * @return the loaded Image
      */
     public static Image loadImage(String imageUrl, int width, int height) {
-        // set cache directory and filename
         if (imageUrl == null || imageUrl.isEmpty()) {
             return null;
         }
-        File cacheDir = new File(System.getProperty("user.home"), ".imagecache");
-        cacheDir.mkdirs();
-        String cacheKey = imageUrl.replaceAll("[^a-zA-Z0-9.-]", "_");
-        File cacheFile = new File(cacheDir, cacheKey + ".png");
-
-        // check if image exists in cache and is not expired
-        if (cacheFile.exists() && !isCacheExpired(cacheFile)) {
-            byte[] imageData = readBytesFromFile(cacheFile.getAbsolutePath());
-            return getJavaFXImage(imageData, width, height);
+        MemoryKey key = new MemoryKey(imageUrl, width, height);
+        LoadedImage loaded = memoryCache.get(key);
+        // a stale image is served as is while its url is backed off, and revalidated after
+        if (loaded != null && (!isCacheExpired(loaded.validated) || backoff.isBlocked(imageUrl))) {
+            return loaded.image;
+        }
+        // concurrent misses of one url and size share a single download and decode
+        CompletableFuture<Image> flight = new CompletableFuture<>();
+        CompletableFuture<Image> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+            }
         }
+        try {
+            Image image = fetchImage(key);
+            flight.complete(image);
+            return image;
+        } catch (RuntimeException | Error ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Loads an image from the disk cache or the network and keeps it in the memory cache.
+     *
+     * @param key the url and size of the image
+     * @return the loaded Image
+     */
+    private static Image fetchImage(MemoryKey key) {
+        String imageUrl = key.url;
+        int width = key.width;
+        int height = key.height;
+        Download entry = readEntry(imageUrl);
+        // serve the cached image until it is due for revalidation
+        if (entry.data != null && !isCacheExpired(entry.validated)) {
+            Image image = decodeImage(entry.data, width, height);
+            if (image != null) {
+                memoryCache.put(key, new LoadedImage(image, entry.validated));
+                return image;
+            }
+            // a corrupt or unsupported entry is a miss, downloaded again below
+            removeEntry(imageUrl);
+            entry = new Download(null, 0, new Properties());
+        }
+        // urls that failed recently are not retried until their backoff passes
+        Download result = backoff.isBlocked(imageUrl) ? null : download(imageUrl, width, height);
+        if (result != null && result.data != null) {
+            Image image = decodeImage(result.data, width, height);
+            if (image != null) {
+                memoryCache.put(key, new LoadedImage(image, result.validated));
+                return image;
+            }
+            removeEntry(imageUrl);
+        }
+        // on a failed or skipped revalidation a stale image beats the placeholder
+        Image stale = entry.data == null ? null : decodeImage(entry.data, width, height);
+        if (stale == null) {
+            if (entry.data != null) {
+                removeEntry(imageUrl);
+            }
+            return getPlaceholder(width, height);
+        }
+        // kept with its old validation time, so the next allowed attempt revalidates it
+        memoryCache.put(key, new LoadedImage(stale, entry.validated));
+        return stale;
+    }
 
-        byte[] imageData = downloadImage(imageUrl, cacheFile, width, height);
-        return getJavaFXImage(imageData, width, height);
+    /**
+     * Downloads or revalidates the disk entry of a url. Sizes of one url share its disk entry,
+     * so concurrent calls share a single request, and no lock is held while it runs.
+     *
+     * @param imageUrl the URL of the image
+     * @param width    the width of the image
+     * @param height   the height of the image
+     * @return the entry, with null data if the download failed
+     */
+    private static Download download(String imageUrl, int width, int height) {
+        CompletableFuture<Download> flight = new CompletableFuture<>();
+        CompletableFuture<Download> running = downloads.putIfAbsent(imageUrl, flight);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+            }
+        }
+        try {
+            // another caller may have stored the entry since it was read
+            Download entry = readEntry(imageUrl);
+            Download result = entry.data != null && !isCacheExpired(entry.validated) ? entry
+                    : new Download(downloadImage(imageUrl, width, height, entry.data, entry.metadata),
+                            System.currentTimeMillis(), null);
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            downloads.remove(imageUrl, flight);
+        }
     }
 
     /**
-     * Downloads an image from the specified URL and stores it in a cache file.
+     * Reads the disk entry of a url together with its metadata.
+     *
+     * @param imageUrl the URL of the image
+     * @return the entry, with null data if nothing is cached
+     */
+    private static Download readEntry(String imageUrl) {
+        ImageDiskCache cache = diskCache;
+        ReentrantLock lock = cache.lock(imageUrl);
+        lock.lock();
+        try {
+            byte[] cached = cache.read(imageUrl);
+            Properties metadata = cached == null ? new Properties() : cache.readMetadata(imageUrl);
+            long validated = cached == null ? 0 : validatedAt(cache, imageUrl, metadata);
+            return new Download(cached, validated, metadata);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the disk entry of a url together with its metadata, so readers never pair
+     * an image with the validators of another version.
+     *
+     * @param imageUrl the URL of the image
+     * @param data     the image data, or null to only replace the metadata
+     * @param metadata the metadata
+     * @throws IOException if the entry cannot be written
+     */
+    private static void writeEntry(String imageUrl, byte[] data, Properties metadata) throws IOException {
+        ImageDiskCache cache = diskCache;
+        ReentrantLock lock = cache.lock(imageUrl);
+        lock.lock();
+        try {
+            if (data != null) {
+                cache.write(imageUrl, data);
+            }
+            cache.writeMetadata(imageUrl, metadata);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the disk entry of a url together with its metadata.
+     *
+     * @param imageUrl the URL of the image
+     */
+    private static void removeEntry(String imageUrl) {
+        ImageDiskCache cache = diskCache;
+        ReentrantLock lock = cache.lock(imageUrl);
+        lock.lock();
+        try {
+            cache.remove(imageUrl);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the capacity of the in-memory cache of decoded images.
+     *
+     * @param maxBytes the capacity in pixel bytes, 0 disables it
+     */
+    public static void setMemoryCacheCapacity(long maxBytes) {
+        memoryCache.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * Returns the capacity of the in-memory cache of decoded images.
+     *
+     * @return the capacity in pixel bytes
+     */
+    public static long getMemoryCacheCapacity() {
+        return memoryCache.getMaxBytes();
+    }
+
+    /**
+     * Returns the cache of downloaded images.
+     *
+     * @return the disk cache
+     */
+    static ImageDiskCache getDiskCache() {
+        return diskCache;
+    }
+
+    /**
+     * Sets the directory downloaded images are cached in, keeping the capacity.
+     * Images cached in the previous directory are left on disk but no longer used.
+     *
+     * @param directory the directory, created on first write
+     */
+    public static void setDiskCacheDirectory(Path directory) {
+        Objects.requireNonNull(directory, "directory");
+        synchronized (Imagefx.class) {
+            diskCache = new ImageDiskCache(directory, diskCache.getMaxBytes());
+        }
+    }
+
+    /**
+     * Returns the directory downloaded images are cached in.
+     *
+     * @return the directory
+     */
+    public static Path getDiskCacheDirectory() {
+        return diskCache.getDirectory();
+    }
+
+    /**
+     * Downloads an image from the specified URL and stores it in the disk cache.
+     * If a cached copy exists the request is conditional on its validators, and a
+     * 304 response keeps the cached copy without downloading the body.
      *
      * @param imageUrl the URL of the image
-     * @param cacheFile the file to store the cached image
      * @param width the width of the image
      * @param height the height of the image
-     * @return the byte array of the downloaded image
+     * @param cached the cached image data, or null
+     * @param metadata the validators stored with the cached image
+     * @return the byte array of the downloaded or revalidated image, or null on failure
      */
-    private static byte[] downloadImage(String imageUrl, File cacheFile, int width, int height) {
+    private static byte[] downloadImage(String imageUrl, int width, int height, byte[] cached, Properties metadata) {
         // download image and store in cache
         byte[] imageData = null;
         try {
             URL url = new URL(imageUrl);
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod("GET");
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            conn.setReadTimeout(READ_TIMEOUT_MILLIS);
+            if (cached != null) {
+                if (metadata.getProperty(META_ETAG) != null) {
+                    conn.setRequestProperty("If-None-Match", metadata.getProperty(META_ETAG));
+                }
+                if (metadata.getProperty(META_LAST_MODIFIED) != null) {
+                    conn.setRequestProperty("If-Modified-Since", metadata.getProperty(META_LAST_MODIFIED));
+                }
+            }
+            int status = conn.getResponseCode();
+            if (cached != null && status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                conn.disconnect();
+                backoff.succeeded(imageUrl);
+                metadata.setProperty(META_VALIDATED, Long.toString(System.currentTimeMillis()));
+                writeEntry(imageUrl, null, metadata);
+                return cached;
+            }
+            if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                conn.disconnect();
+                log.log(Level.WARNING, "Error downloading image {0}: HTTP {1}", new Object[]{imageUrl, status});
+                backoff.failed(imageUrl, false);
+                return null;
+            }
             try (InputStream in = conn.getInputStream()) {
-                BufferedImage image = ImageIO.read(in);
-
-                // Compress and reduce quality
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                //fill image boundaries with most common color in image to match the provided ratio
-                image = fillImage(image, width, height);
-                image = compressImage(image, 0.1f);
-                ImageIO.write(image, "png", baos);
-                imageData = baos.toByteArray();
-
-                try (FileOutputStream out = new FileOutputStream(cacheFile)) {
-                    out.write(imageData);
+                // decode once, scale once to the target size, encode once for the cache
+                BufferedImage image = readImage(in, width, height);
+                if (image == null) {
+                    throw new IOException("Unsupported image format: " + imageUrl);
+                }
+                byte[] compressed = compressImage(fillImage(image, width, height), 0.1f);
+
+                Properties validators = new Properties();
+                if (conn.getHeaderField("ETag") != null) {
+                    validators.setProperty(META_ETAG, conn.getHeaderField("ETag"));
                 }
+                if (conn.getHeaderField("Last-Modified") != null) {
+                    validators.setProperty(META_LAST_MODIFIED, conn.getHeaderField("Last-Modified"));
+                }
+                validators.setProperty(META_VALIDATED, Long.toString(System.currentTimeMillis()));
+                imageData = compressed;
+                writeEntry(imageUrl, compressed, validators);
+                backoff.succeeded(imageUrl);
             }
         } catch (IOException ex) {
             log.log(Level.WARNING, "Error downloading image", ex);
+            if (imageData == null) {
+                // an unreachable host fails every url on it, a bad response only this url
+                boolean hostFailure = ex instanceof SocketTimeoutException
+                        || ex instanceof UnknownHostException
+                        || ex instanceof SocketException;
+                backoff.failed(imageUrl, hostFailure);
+            }
         }
         return imageData;
     }
 
     /**
-     * Fills image boundaries with the most common color in the image to match the provided ratio.
+     * Returns when a cached image was last confirmed current by the server.
+     *
+     * @param cache the disk cache holding the image
+     * @param imageUrl the URL of the image
+     * @param metadata the validators stored with the cached image
+     * @return the time in milliseconds
+     */
+    private static long validatedAt(ImageDiskCache cache, String imageUrl, Properties metadata) {
+        try {
+            return Long.parseLong(metadata.getProperty(META_VALIDATED));
+        } catch (NumberFormatException ex) {
+            // written before validators were stored
+            return cache.lastModified(imageUrl);
+        }
+    }
+
+    /**
+     * Fits the image into the provided size, keeping its aspect ratio, on an opaque background.
      *
      * @param originalImage the original image
      * @param width the width of the image
@@ -181,18 +556,27 @@ public class Imagefx {
     public static BufferedImage fillImage(BufferedImage originalImage, int width, int height) {
         try {
             //scale the original image to match the provided ratio
-            BufferedImage newImage = scaleImage(originalImage, width, height, true);
-            // Compress and reduce quality
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            newImage = compressImage(newImage, 0.1f);
-            ImageIO.write(newImage, "png", baos);
-            return newImage;
+            return flattenImage(scaleImage(originalImage, width, height, true));
         } catch (Exception ex) {
             log.log(Level.WARNING, "Error filling image", ex);
         }
         return originalImage;
     }
 
+    /**
+     * Draws an image onto an opaque white background.
+     *
+     * @param image the image
+     * @return the opaque RGB image
+     */
+    private static BufferedImage flattenImage(BufferedImage image) {
+        BufferedImage newImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = newImage.createGraphics();
+        g2d.drawImage(image, 0, 0, Color.WHITE, null);
+        g2d.dispose();
+        return newImage;
+    }
+
     /**
      * Scales the image to the specified dimensions, optionally maintaining the aspect ratio.
      *
@@ -207,22 +591,18 @@ public class Imagefx {
 
         BufferedImage resizedImage = new BufferedImage(newWidth, newHeight, type);
         Graphics2D g2d = resizedImage.createGraphics();
-        int commonColor = getMostCommonColor(originalImage);
-        g2d.setColor(new Color(commonColor));
         if (maintainAspectRatio) {
             int originalWidth = originalImage.getWidth();
             int originalHeight = originalImage.getHeight();
             double scaleFactor = getScaleFactor(originalWidth, originalHeight, newWidth, newHeight);
 
-            // center the image when scaling
+            // center the image when scaling, in target pixels so the result
+            // does not depend on the resolution the source was decoded at
+            double x = (newWidth - originalWidth * scaleFactor) / 2;
+            double y = (newHeight - originalHeight * scaleFactor) / 2;
 
-            //x should be 0 if the image width is less than the new width
-            double x = Math.max(0, Math.abs((originalWidth - (double) newWidth) / 2));
-            //y should be 0 if x is not 0
-            double y = x == 0 ? Math.abs((originalHeight - (double) newHeight) / 2) : 0;
-
-            AffineTransform transform = AffineTransform.getScaleInstance(scaleFactor, scaleFactor);
-            transform.translate(x, y);
+            AffineTransform transform = AffineTransform.getTranslateInstance(x, y);
+            transform.scale(scaleFactor, scaleFactor);
             g2d.drawImage(originalImage, transform, null);
         } else {
             g2d.drawImage(originalImage, 0, 0, newWidth, newHeight, null);
@@ -233,6 +613,55 @@ public class Imagefx {
         return resizedImage;
     }
 
+    /**
+     * Decodes an image, skipping source pixels the target size cannot show. A photo shown as a
+     * thumbnail is subsampled while decoding, so the full-resolution raster is never allocated.
+     *
+     * @param in the encoded image
+     * @param width the target width
+     * @param height the target height
+     * @return the decoded image, or null if no reader supports the format
+     * @throws IOException if the image cannot be read
+     */
+    private static BufferedImage readImage(InputStream in, int width, int height) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = iis == null ? null : ImageIO.getImageReaders(iis);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int factor = getSubsampling(reader.getWidth(0), reader.getHeight(0), width, height);
+                if (factor > 1) {
+                    param.setSourceSubsampling(factor, factor, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Calculates the largest subsampling factor that still leaves the image fitted into the
+     * target size at full resolution.
+     *
+     * @param originalWidth the original width of the image
+     * @param originalHeight the original height of the image
+     * @param newWidth the target width
+     * @param newHeight the target height
+     * @return the subsampling factor, 1 to decode every pixel
+     */
+    private static int getSubsampling(int originalWidth, int originalHeight, int newWidth, int newHeight) {
+        if (newWidth <= 0 || newHeight <= 0) {
+            return 1;
+        }
+        double fit = 1 / getScaleFactor(originalWidth, originalHeight, newWidth, newHeight);
+        return Math.max(1, (int) fit);
+    }
+
     /**
      * Calculates the scale factor to fit the image within the specified dimensions.
      *
@@ -249,76 +678,98 @@ public class Imagefx {
     }
 
     /**
-     * Finds the most common color in the image.
+     * Checks if a cache entry is due for revalidation (checked more than 24 hours ago).
      *
-     * @param image the image
-     * @return the most common color
+     * @param validated when the entry was last confirmed current
+     * @return true if the cache entry must be revalidated, false otherwise
      */
-    private static int getMostCommonColor(BufferedImage image) {
-        int height = image.getHeight();
-        int width = image.getWidth();
-        int[] pixels = new int[width * height];
-        image.getRGB(0, 0, width, height, pixels, 0, width);
-
-        int[] counts = new int[256 * 256 * 256];
-        for (int pixel : pixels) {
-            counts[pixel & 0x00ffffff]++;
-        }
-
-        int maxCount = 0;
-        int maxColor = 0;
-        for (int i = 0; i < counts.length; i++) {
-            if (counts[i] > maxCount) {
-                maxCount = counts[i];
-                maxColor = i;
-            }
-        }
-        return maxColor;
+    private static boolean isCacheExpired(long validated) {
+        long age = System.currentTimeMillis() - validated;
+        return age > (24 * 60 * 60 * 1000); // expire after 24 hours
     }
 
     /**
-     * Checks if the cache file is expired (older than 24 hours).
+     * Converts a byte array to a JavaFX Image.
      *
-     * @param cacheFile the cache file
-     * @return true if the cache file is expired, false otherwise
+     * @param raw the byte array of the image data
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return the JavaFX Image, or the placeholder if the data is missing or cannot be decoded
      */
-    private static boolean isCacheExpired(File cacheFile) {
-        long age = System.currentTimeMillis() - cacheFile.lastModified();
-        return age > (24 * 60 * 60 * 1000); // expire after 24 hours
+    public static Image getJavaFXImage(byte[] raw, int width, int height) {
+        Image image = raw == null ? null : decodeImage(raw, width, height);
+        return image != null ? image : getPlaceholder(width, height);
     }
 
     /**
-     * Converts a byte array to a JavaFX Image.
+     * Decodes image data into a JavaFX Image of the given size.
      *
      * @param raw the byte array of the image data
      * @param width the width of the image
      * @param height the height of the image
-     * @return the JavaFX Image
+     * @return the JavaFX Image, or null if the data is corrupt or in an unsupported format
      */
-    public static Image getJavaFXImage(byte[] raw, int width, int height) {
-        WritableImage image = new WritableImage(width, height);
+    private static Image decodeImage(byte[] raw, int width, int height) {
         try {
-            if (raw != null) {
-                ByteArrayInputStream bis = new ByteArrayInputStream(raw);
-                BufferedImage read = ImageIO.read(bis);
-                read = scaleImage(read, width, height, true);
-                image = SwingFXUtils.toFXImage(read, null);
-                read.flush();
-                read = null;
-            } else {
-                URL url = Imagefx.class.getResource("noimage.png");
-                BufferedImage read = ImageIO.read(url);
+            BufferedImage read = ImageIO.read(new ByteArrayInputStream(raw));
+            if (read == null) {
+                log.log(Level.WARNING, "Unsupported image format");
+                return null;
+            }
+            // cached downloads are stored at the size they were requested at
+            if (read.getWidth() != width || read.getHeight() != height) {
                 read = scaleImage(read, width, height, true);
-                image = SwingFXUtils.toFXImage(read, null);
-                read.flush();
-                read = null;
             }
+            Image image = BufferedImageTranscoder.toFXImage(read);
+            read.flush();
+            return image;
         } catch (IOException | IllegalArgumentException ex) {
             log.log(Level.WARNING, "Error reading bytes from image", ex);
+            return null;
         }
+    }
+
+    /**
+     * Returns the placeholder shown for missing images, rendering it once per size.
+     *
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return the placeholder, blank if the placeholder resource cannot be read
+     */
+    private static Image getPlaceholder(int width, int height) {
+        Image placeholder = placeholders.get(placeholderKey(width, height));
+        if (placeholder != null) {
+            return placeholder;
+        }
+        WritableImage image = new WritableImage(width, height);
+        URL url = Imagefx.class.getResource("noimage.png");
+        if (url == null) {
+            log.log(Level.WARNING, "Placeholder image not found: noimage.png");
+        } else {
+            try (InputStream in = url.openStream()) {
+                BufferedImage read = readImage(in, width, height);
+                if (read == null) {
+                    throw new IOException("Unsupported placeholder image format");
+                }
+                image = BufferedImageTranscoder.toFXImage(scaleImage(read, width, height, true));
+            } catch (IOException | IllegalArgumentException ex) {
+                log.log(Level.WARNING, "Error reading placeholder image", ex);
+            }
+        }
+        placeholders.put(placeholderKey(width, height), image);
         return image;
     }
 
+    /**
+     * Builds the placeholder cache key of a size.
+     *
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return the key
+     */
+    private static long placeholderKey(int width, int height) {
+        return ((long) width << 32) | (height & 0xffffffffL);
+    }
 
     /**
      * Converts an Image to a byte array.
@@ -329,7 +780,7 @@ public class Imagefx {
     public static byte[] readBytesFromImage(Image image) {
         byte[] res = null;
         try {
-            BufferedImage bImage = SwingFXUtils.fromFXImage(image, null);
+            BufferedImage bImage = BufferedImageTranscoder.fromFXImage(image);
             try (ByteArrayOutputStream s = new ByteArrayOutputStream()) {
                 ImageIO.write(bImage, "png", s);
                 res = s.toByteArray();
@@ -378,16 +829,14 @@ public class Imagefx {
     }
 
     /**
-     * Compress image
+     * Encodes an image as PNG.
      *
-     * @param originalImage
+     * @param image the image
      * @param quality 0.0 - 1.0 (1.0 - highest quality)
-     * @return
+     * @return the PNG data
+     * @throws IOException if the image cannot be encoded
      */
-    private static BufferedImage compressImage(BufferedImage originalImage, float quality) {
-        BufferedImage newImage = new BufferedImage(originalImage.getWidth(), originalImage.getHeight(), BufferedImage.TYPE_INT_RGB);
-        newImage.createGraphics().drawImage(originalImage, 0, 0, Color.WHITE, null);
-
+    private static byte[] compressImage(BufferedImage image, float quality) throws IOException {
         // Get the image writer
         ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
         ImageWriteParam param = writer.getDefaultWriteParam();
@@ -397,18 +846,15 @@ public class Imagefx {
         param.setCompressionQuality(quality);
 
         // Write the image
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             ImageOutputStream ios = ImageIO.createImageOutputStream(baos)) {
-            writer.setOutput(ios);
-            writer.write(null, new IIOImage(newImage, null, null), param);
-            return ImageIO.read(new ByteArrayInputStream(baos.toByteArray()));
-        } catch (IOException e) {
-            log.log(Level.WARNING, "Error compressing image", e);
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            try (ImageOutputStream ios = ImageIO.createImageOutputStream(baos)) {
+                writer.setOutput(ios);
+                writer.write(null, new IIOImage(image, null, null), param);
+            }
+            return baos.toByteArray();
         } finally {
             writer.dispose();
         }
-
-        return newImage;
     }
 
     /**
@@ -484,4 +930,64 @@ public class Imagefx {
         return clipped;
     }
 
+
+    /**
+     * Identifies a decoded image in the memory cache.
+     */
+    private static final class MemoryKey {
+        private final String url;
+        private final int width;
+        private final int height;
+
+        private MemoryKey(String url, int width, int height) {
+            this.url = url;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MemoryKey)) {
+                return false;
+            }
+            MemoryKey other = (MemoryKey) o;
+            return width == other.width && height == other.height && url.equals(other.url);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(url, width, height);
+        }
+    }
+
+    /**
+     * A decoded image with the time its source was last confirmed current.
+     */
+    private static final class LoadedImage {
+        private final Image image;
+        private final long validated;
+
+        private LoadedImage(Image image, long validated) {
+            this.image = image;
+            this.validated = validated;
+        }
+    }
+
+    /**
+     * The encoded disk entry of a url with the time it was last confirmed current.
+     */
+    private static final class Download {
+        private final byte[] data;
+        private final long validated;
+        private final Properties metadata;
+
+        private Download(byte[] data, long validated, Properties metadata) {
+            this.data = data;
+            this.validated = validated;
+            this.metadata = metadata;
+        }
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * InstancePool lends out expensive objects that are not thread-safe, such as parsers and
+ * transcoders. Unlike a thread local it reuses instances across threads, so renders on short-lived
+ * or virtual threads share a few instances instead of creating one per thread.
+ * <p>
+ * At most {@code maxIdle} returned instances are kept; a borrow with none idle creates a new one.
+ *
+ * @param <T> the type of the pooled instances
+ */
+final class InstancePool<T> {
+
+    private final Supplier<T> factory;
+    private final int maxIdle;
+    private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param factory creates an instance when none is idle
+     * @param maxIdle the maximum number of idle instances kept
+     */
+    InstancePool(Supplier<T> factory, int maxIdle) {
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Takes an idle instance or creates one. Hand it back with {@link #release(Object)} when done.
+     *
+     * @return an instance used by no other thread
+     */
+    T borrow() {
+        T instance = idle.poll();
+        if (instance == null) {
+            return factory.get();
+        }
+        idleCount.decrementAndGet();
+        return instance;
+    }
+
+    /**
+     * Hands an instance back for reuse, dropping it if the pool is full.
+     * The caller must not touch it afterwards.
+     *
+     * @param instance the instance
+     */
+    void release(T instance) {
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        idle.offer(instance);
+    }
+
+    /**
+     * Returns the number of instances kept by a pool unless configured otherwise,
+     * one per processor.
+     *
+     * @return the default number of idle instances
+     */
+    static int defaultMaxIdle() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+}
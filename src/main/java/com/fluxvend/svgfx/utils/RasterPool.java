@@ -0,0 +1,195 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RasterPool recycles the premultiplied ARGB images Batik renders into. Renders whose result is
+ * copied out right away, into a JavaFX image or an alpha mask, hand their raster back here, so
+ * live resizing reuses rasters of recent sizes instead of allocating new ones.
+ * <p>
+ * The off-screen rasters Batik renderers draw into are pooled here too, between renderings.
+ * <p>
+ * The pool holds at most {@code svgfx.rasterPool.maxBytes} (4 MB by default) in total, dropping the
+ * least recently released off-screen rasters and then the rasters of the least recently used sizes.
+ */
+final class RasterPool {
+
+    /**
+     * Default capacity of the pool in bytes.
+     */
+    static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static final Map<Long, ArrayDeque<BufferedImage>> pooled = new LinkedHashMap<>(16, 0.75f, true);
+    private static final ArrayDeque<WritableRaster> offScreen = new ArrayDeque<>();
+    private static final long maxBytes = Long.getLong("svgfx.rasterPool.maxBytes", DEFAULT_MAX_BYTES);
+    private static long currentBytes;
+
+    private RasterPool() {
+    }
+
+    /**
+     * Returns a cleared image of the given size, reusing a pooled one if available.
+     *
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     * @return a fully transparent premultiplied ARGB image
+     */
+    static BufferedImage acquire(int width, int height) {
+        BufferedImage image = null;
+        synchronized (pooled) {
+            ArrayDeque<BufferedImage> images = pooled.get(key(width, height));
+            if (images != null) {
+                image = images.poll();
+                if (images.isEmpty()) {
+                    pooled.remove(key(width, height));
+                }
+                if (image != null) {
+                    currentBytes -= sizeOf(image);
+                }
+            }
+        }
+        if (image == null) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        Arrays.fill(((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0);
+        return image;
+    }
+
+    /**
+     * Takes an off-screen raster at least as large as the given size, most recently released first.
+     * Its content is left as the previous renderer drew it.
+     *
+     * @param minWidth  the minimum width in pixels
+     * @param minHeight the minimum height in pixels
+     * @return the raster, or null if none is large enough
+     */
+    static WritableRaster acquireRaster(int minWidth, int minHeight) {
+        synchronized (pooled) {
+            Iterator<WritableRaster> rasters = offScreen.iterator();
+            while (rasters.hasNext()) {
+                WritableRaster raster = rasters.next();
+                if (raster.getWidth() >= minWidth && raster.getHeight() >= minHeight) {
+                    rasters.remove();
+                    currentBytes -= sizeOf(raster);
+                    return raster;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hands an off-screen raster back for reuse by any renderer. The caller must not touch it afterwards.
+     *
+     * @param raster the raster, or null
+     */
+    static void releaseRaster(WritableRaster raster) {
+        if (raster == null) {
+            return;
+        }
+        long size = sizeOf(raster);
+        synchronized (pooled) {
+            if (size > maxBytes) {
+                return;
+            }
+            offScreen.push(raster);
+            currentBytes += size;
+            trim();
+        }
+    }
+
+    /**
+     * Hands an image back for reuse. The caller must not touch it afterwards.
+     *
+     * @param image the image, ignored unless it is a premultiplied ARGB image
+     */
+    static void release(BufferedImage image) {
+        if (image == null || image.getType() != BufferedImage.TYPE_INT_ARGB_PRE) {
+            return;
+        }
+        long size = sizeOf(image);
+        synchronized (pooled) {
+            if (size > maxBytes) {
+                return;
+            }
+            pooled.computeIfAbsent(key(image.getWidth(), image.getHeight()), key -> new ArrayDeque<>()).push(image);
+            currentBytes += size;
+            trim();
+        }
+    }
+
+    /**
+     * Drops the least recently released off-screen rasters, then the rasters of the least recently
+     * used sizes, until the pool fits its capacity.
+     */
+    private static void trim() {
+        while (currentBytes > maxBytes && !offScreen.isEmpty()) {
+            currentBytes -= sizeOf(offScreen.removeLast());
+        }
+        Iterator<ArrayDeque<BufferedImage>> sizes = pooled.values().iterator();
+        while (currentBytes > maxBytes && sizes.hasNext()) {
+            ArrayDeque<BufferedImage> images = sizes.next();
+            while (currentBytes > maxBytes && !images.isEmpty()) {
+                currentBytes -= sizeOf(images.removeLast());
+            }
+            if (images.isEmpty()) {
+                sizes.remove();
+            }
+        }
+    }
+
+    /**
+     * Builds the pool key of a size.
+     *
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     * @return the key
+     */
+    private static long key(int width, int height) {
+        return ((long) width << 32) | (height & 0xffffffffL);
+    }
+
+    /**
+     * Get the memory held by an image
+     *
+     * @param image the image
+     * @return the size in bytes
+     */
+    private static long sizeOf(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Get the memory held by an off-screen raster
+     *
+     * @param raster the raster
+     * @return the size in bytes
+     */
+    private static long sizeOf(WritableRaster raster) {
+        return (long) raster.getWidth() * raster.getHeight() * BYTES_PER_PIXEL;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
+import javafx.concurrent.Task;
+import javafx.util.Duration;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * RenderCoalescer schedules the re-renders of a control. The first request renders right away,
+ * further requests within the coalescing window collapse into a single trailing render,
+ * a newer render cancels the one in flight without interrupting it, and a result is only applied if no newer
+ * request was made while it was rendering.
+ * <p>
+ * All methods must be called on the JavaFX application thread.
+ *
+ * @param <T> the type of the render result
+ */
+public class RenderCoalescer<T> {
+
+    private static Logger log = Logger.getLogger(RenderCoalescer.class.getName());
+
+    private static Duration defaultWindow = Duration.millis(Long.getLong("svgfx.render.coalesceMillis", 100));
+
+    private final Supplier<Supplier<T>> snapshot;
+    private final Consumer<T> apply;
+    private final PauseTransition window = new PauseTransition();
+    private long generation;
+    private boolean pending;
+    private Task<T> running;
+
+    /**
+     * Creates a coalescer using the default window.
+     *
+     * @param snapshot captures the current state on the application thread and returns the
+     *                 render to run in the background
+     * @param apply    applies a current result on the application thread
+     */
+    public RenderCoalescer(Supplier<Supplier<T>> snapshot, Consumer<T> apply) {
+        this.snapshot = snapshot;
+        this.apply = apply;
+        this.window.setDuration(defaultWindow);
+        this.window.setOnFinished(event -> {
+            if (pending) {
+                submit();
+            }
+        });
+    }
+
+    /**
+     * Get the default coalescing window of new coalescers
+     *
+     * @return the default window
+     */
+    public static Duration getDefaultWindow() {
+        return defaultWindow;
+    }
+
+    /**
+     * Set the default coalescing window of new coalescers
+     *
+     * @param window the default window
+     * @throws IllegalArgumentException if the window is null or negative
+     */
+    public static void setDefaultWindow(Duration window) {
+        if (window == null || window.lessThan(Duration.ZERO)) {
+            throw new IllegalArgumentException("window must not be null or negative");
+        }
+        defaultWindow = window;
+    }
+
+    /**
+     * Get the coalescing window
+     *
+     * @return the window
+     */
+    public Duration getWindow() {
+        return window.getDuration();
+    }
+
+    /**
+     * Set the coalescing window
+     *
+     * @param window the window, {@link Duration#ZERO} renders every request
+     */
+    public void setWindow(Duration window) {
+        this.window.setDuration(window);
+    }
+
+    /**
+     * Requests a render of the current state.
+     */
+    public void request() {
+        generation++;
+        if (window.getStatus() == Animation.Status.RUNNING) {
+            pending = true;
+            return;
+        }
+        submit();
+    }
+
+    /**
+     * Cancels pending and in-flight renders, so none of them is applied.
+     */
+    public void cancel() {
+        generation++;
+        pending = false;
+        window.stop();
+        if (running != null) {
+            running.cancel(false);
+            running = null;
+        }
+    }
+
+    /**
+     * Starts a render of the current state, cancelling the one in flight.
+     */
+    private void submit() {
+        pending = false;
+        if (running != null) {
+            // never interrupt, the render may be shared with other controls through SvgLoader
+            running.cancel(false);
+        }
+        final long stamp = generation;
+        final Supplier<T> render = snapshot.get();
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() {
+                return render.get();
+            }
+
+            @Override
+            protected void succeeded() {
+                if (stamp == generation) {
+                    running = null;
+                    apply.accept(getValue());
+                }
+            }
+
+            @Override
+            protected void failed() {
+                if (stamp == generation) {
+                    running = null;
+                }
+                log.log(Level.WARNING, "Error rendering image", getException());
+            }
+        };
+        running = task;
+        RenderExecutor.execute(task);
+        if (window.getDuration().greaterThan(Duration.ZERO)) {
+            window.playFromStart();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * RenderExecutor is the shared background scheduler for SVG renders started by the controls.
+ * It runs at most a fixed number of renders at once on daemon threads, optionally virtual threads
+ * when the runtime supports them, and is created lazily on first use.
+ * <p>
+ * The defaults can be set with the {@code svgfx.render.threads} and
+ * {@code svgfx.render.virtualThreads} system properties.
+ */
+public final class RenderExecutor {
+
+    private static Logger log = Logger.getLogger(RenderExecutor.class.getName());
+
+    /**
+     * Default number of renders that run at once.
+     */
+    public static final int DEFAULT_PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static int parallelism = Integer.getInteger("svgfx.render.threads", DEFAULT_PARALLELISM);
+    private static boolean virtualThreads = Boolean.getBoolean("svgfx.render.virtualThreads");
+    private static ThreadPoolExecutor executor;
+
+    private RenderExecutor() {
+    }
+
+    /**
+     * Runs a render task on the shared executor.
+     *
+     * @param task the task to run
+     */
+    public static void execute(Runnable task) {
+        getExecutor().execute(task);
+    }
+
+    /**
+     * Returns the shared executor, creating it if needed.
+     *
+     * @return the shared executor
+     */
+    public static synchronized ExecutorService getExecutor() {
+        if (executor == null || executor.isShutdown()) {
+            executor = createExecutor();
+        }
+        return executor;
+    }
+
+    /**
+     * Sets how many renders run at once.
+     *
+     * @param threads the maximum number of concurrent renders
+     */
+    public static synchronized void setParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        parallelism = threads;
+        if (executor != null) {
+            if (threads > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(threads);
+                executor.setCorePoolSize(threads);
+            } else {
+                executor.setCorePoolSize(threads);
+                executor.setMaximumPoolSize(threads);
+            }
+        }
+    }
+
+    /**
+     * Returns how many renders run at once.
+     *
+     * @return the maximum number of concurrent renders
+     */
+    public static synchronized int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Selects virtual threads for renders, falling back to platform daemon threads when the
+     * runtime does not support them. Takes effect for renders submitted after the call;
+     * renders already queued finish on the previous threads.
+     *
+     * @param enabled whether to use virtual threads
+     */
+    public static synchronized void setVirtualThreads(boolean enabled) {
+        if (virtualThreads != enabled) {
+            virtualThreads = enabled;
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+    }
+
+    /**
+     * Returns whether virtual threads were requested for renders.
+     *
+     * @return true if virtual threads are requested
+     */
+    public static synchronized boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stops the shared executor, letting queued renders finish. Call it from
+     * {@code Application.stop()}; a later render creates a fresh executor.
+     * Renders still queued after the timeout are cancelled.
+     *
+     * @param timeout the maximum time to wait for queued renders
+     * @param unit    the unit of the timeout
+     * @return true if all renders finished within the timeout
+     */
+    public static boolean shutdown(long timeout, TimeUnit unit) {
+        ThreadPoolExecutor current;
+        synchronized (RenderExecutor.class) {
+            current = executor;
+            executor = null;
+        }
+        if (current == null) {
+            return true;
+        }
+        current.shutdown();
+        try {
+            if (current.awaitTermination(timeout, unit)) {
+                return true;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        for (Runnable dropped : current.shutdownNow()) {
+            // cancelled, so whoever waits on a render that never started is released
+            if (dropped instanceof Future) {
+                ((Future<?>) dropped).cancel(false);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the executor from the current settings.
+     *
+     * @return a new executor
+     */
+    private static ThreadPoolExecutor createExecutor() {
+        ThreadFactory factory = virtualThreads ? virtualThreadFactory() : null;
+        if (factory == null) {
+            factory = daemonThreadFactory();
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Creates a factory of named platform daemon threads.
+     *
+     * @return the thread factory
+     */
+    private static ThreadFactory daemonThreadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "svgfx-render-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Creates a factory of virtual threads through reflection, so the library still runs on Java 17.
+     *
+     * @return the thread factory, or null if virtual threads are not available
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "svgfx-render-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            log.log(Level.WARNING, "Virtual threads are not available, using platform threads", ex);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * SvgDiskCache keeps rendered SVG images on disk across restarts. Entries are keyed by a hash of
+ * the SVG content together with the color, size and scale, so a changed resource never hits an
+ * old entry, and hold the raw premultiplied pixels so a hit is a single read and copy. Sizes are
+ * keyed in whole output pixels, so renders that only differ by a fraction of a pixel share an entry.
+ * <p>
+ * The directory is bounded like an {@link ImageDiskCache}, evicting the least recently used renders
+ * once it holds more than {@code svgfx.diskCache.maxBytes}. File names start with the hash of the
+ * url and of its content, so the renders of an older version of an SVG are deleted the first time
+ * the current version is used.
+ * <p>
+ * The cache is disabled unless a directory is set, either with {@link SvgLoader#setDiskCacheDirectory(Path)}
+ * or the {@code svgfx.diskCache.dir} system property.
+ */
+final class SvgDiskCache {
+
+    private static Logger log = Logger.getLogger(SvgDiskCache.class.getName());
+
+    private static final int MAGIC = 0x53564752; // "SVGR"
+    private static final int HEADER_BYTES = 12;
+    private static final String SUFFIX = ".px";
+    private static final int PREFIX_CHARS = 16;
+
+    private static final Map<String, String> contentHashes = new ConcurrentHashMap<>();
+    private static volatile long maxBytes = Long.getLong("svgfx.diskCache.maxBytes", SvgLoader.DEFAULT_DISK_CACHE_BYTES);
+    private static volatile RenderFiles files = open(initialDirectory());
+
+    private SvgDiskCache() {
+    }
+
+    /**
+     * Get the cache directory
+     *
+     * @return the directory, or null if the cache is disabled
+     */
+    static Path getDirectory() {
+        RenderFiles current = files;
+        return current == null ? null : current.getDirectory();
+    }
+
+    /**
+     * Set the cache directory
+     *
+     * @param dir the directory, created on first write, or null to disable the cache
+     */
+    static void setDirectory(Path dir) {
+        files = open(dir);
+    }
+
+    /**
+     * Get the capacity
+     *
+     * @return the capacity in bytes
+     */
+    static long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Set the capacity, evicting renders if the cache is now over it
+     *
+     * @param bytes the capacity in bytes
+     */
+    static void setMaxBytes(long bytes) {
+        maxBytes = bytes;
+        RenderFiles current = files;
+        if (current != null) {
+            current.setMaxBytes(bytes);
+        }
+    }
+
+    /**
+     * Reads a rendered image.
+     *
+     * @param url        the URL of the SVG file
+     * @param color      the color the image is painted with, or null if it is not recolored
+     * @param fillStroke whether strokes are painted with the color too
+     * @param width      the requested width
+     * @param height     the requested height
+     * @param scale      the output scale
+     * @return the image, or null if it is not cached
+     */
+    static Image get(String url, Color color, boolean fillStroke, Double width, Double height, double scale) {
+        RenderFiles current = files;
+        String name = current == null ? null : entry(current, url, color, fillStroke, width, height, scale);
+        if (name == null) {
+            return null;
+        }
+        byte[] data = current.read(name);
+        if (data == null) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.wrap(data);
+        if (data.length < HEADER_BYTES || header.getInt() != MAGIC) {
+            return null;
+        }
+        int w = header.getInt();
+        int h = header.getInt();
+        if (w <= 0 || h <= 0 || data.length != HEADER_BYTES + (long) w * h * 4) {
+            return null;
+        }
+        WritableImage image = new WritableImage(w, h);
+        image.getPixelWriter().setPixels(0, 0, w, h, PixelFormat.getByteBgraPreInstance(), data, HEADER_BYTES, w * 4);
+        return image;
+    }
+
+    /**
+     * Writes a rendered image. The entry is written to a temporary file and moved in place,
+     * so concurrent readers never see a partial entry.
+     *
+     * @param url        the URL of the SVG file
+     * @param color      the color the image is painted with, or null if it is not recolored
+     * @param fillStroke whether strokes are painted with the color too
+     * @param width      the requested width
+     * @param height     the requested height
+     * @param scale      the output scale
+     * @param image      the rendered image
+     */
+    static void put(String url, Color color, boolean fillStroke, Double width, Double height, double scale, Image image) {
+        RenderFiles current = files;
+        String name = current == null ? null : entry(current, url, color, fillStroke, width, height, scale);
+        if (name == null || image.getPixelReader() == null) {
+            return;
+        }
+        int w = (int) image.getWidth();
+        int h = (int) image.getHeight();
+        long pixelBytes = (long) w * h * 4;
+        // an entry larger than the whole cache would be evicted right away
+        if (pixelBytes > Integer.MAX_VALUE - HEADER_BYTES || HEADER_BYTES + pixelBytes > current.getMaxBytes()) {
+            return;
+        }
+        byte[] data = new byte[HEADER_BYTES + (int) pixelBytes];
+        ByteBuffer.wrap(data).putInt(MAGIC).putInt(w).putInt(h);
+        image.getPixelReader().getPixels(0, 0, w, h, PixelFormat.getByteBgraPreInstance(), data, HEADER_BYTES, w * 4);
+        try {
+            current.write(name, data);
+        } catch (IOException ex) {
+            log.log(Level.WARNING, "Error caching render " + current.file(name), ex);
+        }
+    }
+
+    /**
+     * Forgets the content hash of an SVG, so it is read again on next use.
+     *
+     * @param url the URL of the SVG file
+     */
+    static void invalidate(String url) {
+        contentHashes.remove(url);
+        RenderFiles current = files;
+        if (current != null) {
+            current.swept.remove(url);
+        }
+    }
+
+    /**
+     * Forgets the content hashes of all SVGs.
+     */
+    static void invalidateAll() {
+        contentHashes.clear();
+        RenderFiles current = files;
+        if (current != null) {
+            current.swept.clear();
+        }
+    }
+
+    /**
+     * Deletes every cached render from the directory.
+     */
+    static void clear() {
+        RenderFiles current = files;
+        if (current != null) {
+            current.clear();
+        }
+    }
+
+    /**
+     * Returns the name of an entry, deleting the renders of older versions of the SVG
+     * the first time it is used with a directory.
+     *
+     * @param current the renders of the current directory
+     * @return the name, or null if the SVG cannot be read
+     */
+    private static String entry(RenderFiles current, String url, Color color, boolean fillStroke,
+                                Double width, Double height, double scale) {
+        try {
+            String urlPrefix = Hashes.sha256(url).substring(0, PREFIX_CHARS) + '-';
+            String versionPrefix = urlPrefix + contentHash(url).substring(0, PREFIX_CHARS) + '-';
+            if (current.swept.add(url)) {
+                current.removeIf(name -> name.startsWith(urlPrefix) && !name.startsWith(versionPrefix));
+            }
+            String key = String.valueOf(color) + '|' + fillStroke + '|' + pixels(width, scale) + '|' + pixels(height, scale) + '|' + scale;
+            return versionPrefix + Hashes.sha256(key);
+        } catch (IOException ex) {
+            log.log(Level.WARNING, "Error hashing " + url, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Rounds a requested size to whole output pixels for the entry key.
+     *
+     * @param size  the requested size, or null if it follows the SVG
+     * @param scale the output scale
+     * @return the size in pixels, or "-" if none was requested
+     */
+    private static String pixels(Double size, double scale) {
+        return size == null ? "-" : Long.toString(Math.round(size * scale));
+    }
+
+    /**
+     * Returns the hash of an SVG resource's bytes, reading it on first use.
+     *
+     * @param url the classpath URL of the SVG file
+     * @return the hex encoded hash
+     * @throws IOException if the resource cannot be read
+     */
+    private static String contentHash(String url) throws IOException {
+        String hash = contentHashes.get(url);
+        if (hash == null) {
+            try (InputStream in = SvgDiskCache.class.getResourceAsStream(url)) {
+                if (in == null) {
+                    throw new FileNotFoundException(url);
+                }
+                hash = Hashes.sha256(in.readAllBytes());
+            }
+            contentHashes.put(url, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Opens the renders kept in a directory.
+     *
+     * @param dir the directory, or null if the cache is disabled
+     * @return the renders, or null if the cache is disabled
+     */
+    private static RenderFiles open(Path dir) {
+        return dir == null ? null : new RenderFiles(dir, maxBytes);
+    }
+
+    /**
+     * Reads the directory from the {@code svgfx.diskCache.dir} system property.
+     *
+     * @return the directory, or null if the property is not set
+     */
+    private static Path initialDirectory() {
+        String dir = System.getProperty("svgfx.diskCache.dir");
+        return dir == null || dir.isBlank() ? null : Paths.get(dir);
+    }
+
+    /**
+     * The render files of one directory, named by their entry instead of a hash of it.
+     */
+    private static final class RenderFiles extends ImageDiskCache {
+        private final Set<String> swept = ConcurrentHashMap.newKeySet();
+
+        private RenderFiles(Path directory, long maxBytes) {
+            super(directory, maxBytes, SUFFIX);
+        }
+
+        @Override
+        String name(String key) {
+            return key;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.util.XMLResourceDescriptor;
+import org.w3c.dom.svg.SVGDocument;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SvgDocumentCache keeps one parsed template document per SVG url.
+ * Callers receive a deep clone of the template, so they are free to
+ * recolor and resize it without touching the shared copy.
+ */
+class SvgDocumentCache {
+
+    private final int maxEntries;
+    private final Map<String, SVGDocument> templates;
+
+    /**
+     * Creates a cache holding at most the given number of templates.
+     *
+     * @param maxEntries the maximum number of cached templates
+     */
+    SvgDocumentCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.templates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SVGDocument> eldest) {
+                return size() > SvgDocumentCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns a private copy of the parsed SVG document for a url,
+     * parsing the resource only the first time it is requested.
+     *
+     * @param url the classpath URL of the SVG file
+     * @return a deep clone of the parsed document
+     * @throws IOException if the resource cannot be read or parsed
+     */
+    SVGDocument get(String url) throws IOException {
+        SVGDocument template;
+        synchronized (templates) {
+            template = templates.get(url);
+        }
+        if (template == null) {
+            template = parse(url);
+            synchronized (templates) {
+                SVGDocument existing = templates.putIfAbsent(url, template);
+                if (existing != null) {
+                    template = existing;
+                }
+            }
+        }
+        // Batik documents are not safe for concurrent reads, clone one at a time
+        synchronized (template) {
+            return (SVGDocument) template.cloneNode(true);
+        }
+    }
+
+    /**
+     * Checks whether the template for a url is parsed and cached.
+     *
+     * @param url the URL of the SVG file
+     * @return true if the template is cached
+     */
+    boolean contains(String url) {
+        synchronized (templates) {
+            return templates.containsKey(url);
+        }
+    }
+
+    /**
+     * Removes the template for a url.
+     *
+     * @param url the URL of the SVG file
+     */
+    void invalidate(String url) {
+        synchronized (templates) {
+            templates.remove(url);
+        }
+    }
+
+    /**
+     * Removes all templates.
+     */
+    void invalidateAll() {
+        synchronized (templates) {
+            templates.clear();
+        }
+    }
+
+    /**
+     * Parses an SVG resource from the classpath.
+     *
+     * @param url the classpath URL of the SVG file
+     * @return the parsed document
+     * @throws IOException if the resource cannot be read or parsed
+     */
+    private SVGDocument parse(String url) throws IOException {
+        try (InputStream file = getClass().getResourceAsStream(url)) {
+            if (file == null) {
+                throw new FileNotFoundException(url);
+            }
+            SAXSVGDocumentFactory factory = Factories.factories.borrow();
+            SVGDocument doc = factory.createSVGDocument(url, file);
+            // a factory that failed is dropped rather than reused
+            Factories.factories.release(factory);
+            return doc;
+        }
+    }
+
+    /**
+     * Holds the pooled parsers, so Batik is only loaded once a document is parsed.
+     */
+    private static final class Factories {
+        // the factory is not thread-safe, so each parse borrows one
+        private static final InstancePool<SAXSVGDocumentFactory> factories = new InstancePool<>(
+                () -> new SAXSVGDocumentFactory(XMLResourceDescriptor.getXMLParserClassName()),
+                InstancePool.defaultMaxIdle());
+    }
+}
@@ -15,25 +15,40 @@
  */
 package com.fluxvend.svgfx.utils;
 
-import javafx.css.CssParser;
-import javafx.css.Rule;
-import javafx.css.Stylesheet;
-import javafx.css.converter.ColorConverter;
-import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
-import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
 import org.apache.batik.anim.dom.SVGOMSVGElement;
 import org.apache.batik.transcoder.TranscoderException;
 import org.apache.batik.transcoder.TranscoderInput;
-import org.apache.batik.util.XMLResourceDescriptor;
 import org.apache.commons.lang3.StringUtils;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
 import org.w3c.dom.svg.SVGDocument;
 
+import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 /**
  * SvgLoader is a utility class for loading and processing SVG images in JavaFX.
@@ -44,31 +59,142 @@ public class SvgLoader {
     public static final String BI_ICON_PATH = "/com/fluxvend/svgfx/images/svg/bi/bi-";
     private static Logger log = Logger.getLogger(SvgLoader.class.getName());
 
-    private static SvgLoader loader;
+    /**
+     * Default capacity of the rasterized image cache, overridable with the
+     * {@code svgfx.imageCache.maxBytes} system property.
+     */
+    public static final long DEFAULT_IMAGE_CACHE_BYTES = 32L * 1024 * 1024;
+
+    private static final ImageCache<CacheKey> imageCache =
+            new ImageCache<>(Long.getLong("svgfx.imageCache.maxBytes", DEFAULT_IMAGE_CACHE_BYTES));
+
+    /**
+     * Default number of parsed SVG documents kept as templates, overridable with the
+     * {@code svgfx.documentCache.maxEntries} system property.
+     */
+    public static final int DEFAULT_DOCUMENT_CACHE_ENTRIES = 256;
+
+    private static final SvgDocumentCache documentCache =
+            new SvgDocumentCache(Integer.getInteger("svgfx.documentCache.maxEntries", DEFAULT_DOCUMENT_CACHE_ENTRIES));
+
+    /**
+     * Default capacity of the alpha mask cache used to tint single-color SVGs, overridable with the
+     * {@code svgfx.maskCache.maxBytes} system property.
+     */
+    public static final long DEFAULT_MASK_CACHE_BYTES = 8L * 1024 * 1024;
+
+    private static final WeightedCache<CacheKey, AlphaMask> maskCache =
+            new WeightedCache<>(Long.getLong("svgfx.maskCache.maxBytes", DEFAULT_MASK_CACHE_BYTES), AlphaMask::sizeInBytes);
 
-    private String themePath = "/styles/themes/default.css";
+    /**
+     * Default capacity of the disk cache, overridable with the
+     * {@code svgfx.diskCache.maxBytes} system property.
+     */
+    public static final long DEFAULT_DISK_CACHE_BYTES = 64L * 1024 * 1024;
+
+    private static final Map<CacheKey, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private static volatile Executor asyncExecutor;
+
+    private static volatile ForkJoinPool batchPool;
+
+    private static final Map<String, Optional<Color>> singleColorSvgs = new ConcurrentHashMap<>();
+
+    private static final Set<String> SINGLE_COLOR_ELEMENTS = Set.of(
+            "g", "path", "rect", "circle", "ellipse", "line", "polyline", "polygon", "title", "desc", "defs", "use", "symbol");
+
+    private static final List<String> PAINT_ATTRIBUTES = List.of("fill", "stroke", "color");
 
     /**
-     * Returns the singleton instance of SvgLoader.
+     * Theme stylesheet of the default instance.
+     */
+    public static final String DEFAULT_THEME_PATH = "/styles/themes/default.css";
+
+    private static final Map<String, SvgLoader> loaders = new ConcurrentHashMap<>();
+
+    private static volatile SvgLoader loader = forTheme(DEFAULT_THEME_PATH);
+
+    private final String themePath;
+
+    /**
+     * Returns the default instance of SvgLoader.
      *
-     * @return the singleton instance
+     * @return the default instance
      */
     public static SvgLoader getInstance() {
-        if (loader == null) {
-            loader = new SvgLoader();
-        }
         return loader;
     }
 
+    /**
+     * Returns the instance of SvgLoader for a theme stylesheet and makes it the default instance.
+     * Switching themes drops the parsed colors of both stylesheets so they are read afresh.
+     *
+     * @param themePath the classpath path of the theme stylesheet
+     * @return the instance for the theme
+     */
     public static SvgLoader getInstance(String themePath) {
-        if (loader == null) {
-            loader = new SvgLoader();
+        SvgLoader themed = forTheme(themePath);
+        SvgLoader previous;
+        synchronized (SvgLoader.class) {
+            previous = loader;
+            loader = themed;
         }
-        loader.themePath = themePath;
-        return loader;
+        if (previous != themed) {
+            ThemeColors.invalidate(previous.themePath);
+            ThemeColors.invalidate(themePath);
+        }
+        return themed;
     }
 
-    private SvgLoader() {
+    /**
+     * Returns the instance of SvgLoader for a theme stylesheet without changing the default instance.
+     * Instances never change their theme, so loaders of different themes can render at the same time.
+     *
+     * @param themePath the classpath path of the theme stylesheet
+     * @return the instance for the theme
+     */
+    public static SvgLoader forTheme(String themePath) {
+        return loaders.computeIfAbsent(Objects.requireNonNull(themePath, "themePath"), SvgLoader::new);
+    }
+
+    private SvgLoader(String themePath) {
+        this.themePath = themePath;
+    }
+
+    /**
+     * Returns the theme stylesheet used to resolve {@code -fx-} color classes.
+     *
+     * @return the classpath path of the theme stylesheet
+     */
+    public String getThemePath() {
+        return themePath;
+    }
+
+    /**
+     * Resolves a color class the same way renders do.
+     *
+     * @param colorClass a {@code -fx-} theme color, a hex color or a web color name
+     * @return the color, or null if the color class is null or not declared by the theme
+     */
+    public Color resolveColor(String colorClass) {
+        if (colorClass == null) {
+            return null;
+        }
+        if (colorClass.startsWith("-fx-")) {
+            return ThemeColors.forTheme(themePath).get(colorClass);
+        }
+        return Color.web(colorClass);
+    }
+
+    /**
+     * Returns a private copy of the parsed SVG document for a url.
+     *
+     * @param url the URL of the SVG file
+     * @return a deep clone of the cached template
+     * @throws IOException if the resource cannot be read or parsed
+     */
+    static SVGDocument loadDocument(String url) throws IOException {
+        return documentCache.get(url);
     }
 
     /**
@@ -95,81 +221,497 @@ public class SvgLoader {
      * @return the loaded image
      */
     public Image loadSvgImage(String url, String colorClass, boolean fillStroke, Double width, Double height) {
-        try (InputStream file = getClass().getResourceAsStream(url)) {
-            String parser = XMLResourceDescriptor.getXMLParserClassName();
-            SAXSVGDocumentFactory f = new SAXSVGDocumentFactory(parser);
-            SVGDocument doc = f.createSVGDocument(url, file);
+        return loadSvgImage(url, colorClass, fillStroke, width, height, 1.0);
+    }
+
+    /**
+     * Loads an SVG image rasterized at an output scale, for HiDPI screens.
+     * The width and height stay in logical pixels; the image is scale times larger
+     * and is meant to be shown with an ImageView fitted to the logical size.
+     *
+     * @param url        the URL of the SVG file
+     * @param colorClass the color class to apply
+     * @param fillStroke whether to fill stroke color
+     * @param width      the width of the image in logical pixels
+     * @param height     the height of the image in logical pixels
+     * @param scale      the output scale of the screen, e.g. 2.0 on a retina display
+     * @return the loaded image
+     */
+    public Image loadSvgImage(String url, String colorClass, boolean fillStroke, Double width, Double height, double scale) {
+        if (scale <= 0) {
+            scale = 1.0;
+        }
+        ThemeColors theme = themeFor(colorClass);
+        CacheKey key = new CacheKey(url, colorClass, theme, fillStroke, width, height, scale);
+        Image image = imageCache.get(key);
+        if (image != null) {
+            return image;
+        }
+        Flight flight = new Flight(key, () -> fly(key, theme));
+        Flight running = inFlight.putIfAbsent(key, flight);
+        if (running == null) {
+            running = flight;
+        }
+        // a flight still queued for the async executor is rendered here rather than waited for,
+        // since this thread may be the one the queue is waiting on
+        running.run();
+        try {
+            return running.result.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+        }
+    }
+
+    /**
+     * Loads an SVG image in the background. See {@link #loadSvgImageAsync(String, String, boolean, Double, Double, double)}.
+     *
+     * @param url        the URL of the SVG file
+     * @param colorClass the color class to apply
+     * @param fillStroke whether to fill stroke color
+     * @param width      the width of the image
+     * @param height     the height of the image
+     * @return a future completed with the loaded image
+     */
+    public CompletableFuture<Image> loadSvgImageAsync(String url, String colorClass, boolean fillStroke, Double width, Double height) {
+        return loadSvgImageAsync(url, colorClass, fillStroke, width, height, 1.0);
+    }
+
+    /**
+     * Loads an SVG image in the background on the {@link #getAsyncExecutor() async executor}.
+     * A cached image completes the future right away, and concurrent requests for the same
+     * image, synchronous or not, share a single render.
+     * <p>
+     * The future completes on a render thread; use {@code Platform.runLater} to touch the scene graph.
+     *
+     * @param url        the URL of the SVG file
+     * @param colorClass the color class to apply
+     * @param fillStroke whether to fill stroke color
+     * @param width      the width of the image in logical pixels
+     * @param height     the height of the image in logical pixels
+     * @param scale      the output scale of the screen
+     * @return a future completed with the loaded image
+     */
+    public CompletableFuture<Image> loadSvgImageAsync(String url, String colorClass, boolean fillStroke, Double width, Double height, double scale) {
+        if (scale <= 0) {
+            scale = 1.0;
+        }
+        ThemeColors theme = themeFor(colorClass);
+        CacheKey key = new CacheKey(url, colorClass, theme, fillStroke, width, height, scale);
+        Image image = imageCache.get(key);
+        if (image != null) {
+            return CompletableFuture.completedFuture(image);
+        }
+        Flight flight = new Flight(key, () -> fly(key, theme));
+        Flight running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            // callers get their own copy, so cancelling one does not cancel the shared render
+            return running.result.copy();
+        }
+        try {
+            getAsyncExecutor().execute(flight);
+        } catch (RejectedExecutionException ex) {
+            flight.reject(ex);
+        }
+        return flight.result.copy();
+    }
+
+    /**
+     * Renders an image registered as in flight and caches it.
+     *
+     * @param key   the cache key, holding the render parameters
+     * @param theme the theme colors to resolve {@code -fx-} color classes with
+     * @return the rendered image
+     */
+    private Image fly(CacheKey key, ThemeColors theme) {
+        Image image = imageCache.get(key);
+        if (image == null) {
+            boolean onDisk = SvgDiskCache.getDirectory() != null;
+            Color color = onDisk ? appliedColor(key.colorClass, theme) : null;
+            image = onDisk ? SvgDiskCache.get(key.url, color, key.fillStroke, key.width, key.height, key.scale) : null;
+            if (image == null) {
+                image = renderSvgImage(key.url, key.colorClass, theme, key.fillStroke, key.width, key.height, key.scale);
+                if (onDisk) {
+                    SvgDiskCache.put(key.url, color, key.fillStroke, key.width, key.height, key.scale, image);
+                }
+            }
+            imageCache.put(key, image);
+        }
+        return image;
+    }
 
+    /**
+     * Returns the color a render paints with, which identifies it on disk instead of the color class.
+     *
+     * @param colorClass the color class
+     * @param theme      the theme colors to resolve {@code -fx-} color classes with
+     * @return the color, or null if the SVG keeps its own colors
+     */
+    private static Color appliedColor(String colorClass, ThemeColors theme) {
+        if (colorClass == null) {
+            return null;
+        }
+        return colorClass.startsWith("-fx-") ? theme.get(colorClass) : Color.web(colorClass);
+    }
+
+    /**
+     * Renders a set of images in parallel, e.g. all icons of a screen before it is shown.
+     * Blocks until every image is ready; see {@link #loadAllAsync(Collection)}.
+     *
+     * @param requests the images to render
+     * @return the images by request, in request order
+     */
+    public Map<SvgRenderRequest, Image> loadAll(Collection<SvgRenderRequest> requests) {
+        try {
+            return loadAllAsync(requests).join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+        }
+    }
+
+    /**
+     * Renders a set of images in parallel on the {@link #getBatchPool() batch pool}.
+     * Identical requests are rendered once, and images already cached or being rendered are shared.
+     * An image that fails to render is logged and left out of the result,
+     * so one broken file does not hold back the rest of the batch.
+     *
+     * @param requests the images to render
+     * @return a future completed with the images by request, in request order
+     */
+    public CompletableFuture<Map<SvgRenderRequest, Image>> loadAllAsync(Collection<SvgRenderRequest> requests) {
+        List<SvgRenderRequest> distinct = List.copyOf(new LinkedHashSet<>(requests));
+        return CompletableFuture.supplyAsync(() -> {
+            // a parallel stream started on a pool worker forks onto that pool
+            Image[] images = new Image[distinct.size()];
+            IntStream.range(0, distinct.size()).parallel().forEach(i -> images[i] = tryLoad(distinct.get(i)));
+            Map<SvgRenderRequest, Image> result = new LinkedHashMap<>();
+            for (int i = 0; i < images.length; i++) {
+                if (images[i] != null) {
+                    result.put(distinct.get(i), images[i]);
+                }
+            }
+            return result;
+        }, getBatchPool());
+    }
+
+    /**
+     * Loads the image of a batch request.
+     *
+     * @param request the request
+     * @return the image, or null if it failed to render
+     */
+    private Image tryLoad(SvgRenderRequest request) {
+        try {
+            return loadSvgImage(request.getUrl(), request.getColorClass(), request.isFillStroke(),
+                    request.getWidth(), request.getHeight(), request.getScale());
+        } catch (RuntimeException ex) {
+            log.log(Level.WARNING, "Error rendering " + request, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Sets the fork-join pool batches render on.
+     *
+     * @param pool the pool, or null for the common pool
+     */
+    public static void setBatchPool(ForkJoinPool pool) {
+        batchPool = pool;
+    }
+
+    /**
+     * Returns the fork-join pool batches render on.
+     *
+     * @return the configured pool, or the common pool by default
+     */
+    public static ForkJoinPool getBatchPool() {
+        ForkJoinPool pool = batchPool;
+        return pool != null ? pool : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Sets the executor background loads run on.
+     *
+     * @param executor the executor, or null for the shared {@link RenderExecutor}
+     */
+    public static void setAsyncExecutor(Executor executor) {
+        asyncExecutor = executor;
+    }
+
+    /**
+     * Returns the executor background loads run on.
+     *
+     * @return the configured executor, or the shared {@link RenderExecutor} by default
+     */
+    public static Executor getAsyncExecutor() {
+        Executor executor = asyncExecutor;
+        return executor != null ? executor : RenderExecutor.getExecutor();
+    }
+
+    /**
+     * Returns the theme a color class is resolved with.
+     *
+     * @param colorClass the color class
+     * @return the parsed current theme for {@code -fx-} colors, null for other colors
+     */
+    ThemeColors themeFor(String colorClass) {
+        return colorClass != null && colorClass.startsWith("-fx-") ? ThemeColors.forTheme(themePath) : null;
+    }
+
+    /**
+     * Rasterizes an SVG image, bypassing the image cache.
+     * Single-color SVGs are tinted from a cached alpha mask instead of being transcoded per color.
+     *
+     * @param url        the URL of the SVG file
+     * @param colorClass the color class to apply
+     * @param theme      the theme colors to resolve {@code -fx-} color classes with
+     * @param fillStroke whether to fill stroke color
+     * @param width      the width of the image
+     * @param height     the height of the image
+     * @param scale      the output scale
+     * @return the rendered image
+     */
+    Image renderSvgImage(String url, String colorClass, ThemeColors theme, boolean fillStroke, Double width, Double height, double scale) {
+        try {
+            if (url.startsWith(BI_ICON_PATH) && !(colorClass != null && fillStroke)) {
+                // packed icons are single-color and black by default, so they skip the document entirely
+                AlphaMask packed = loadPackedMask(url, width, height, scale);
+                Color color = colorClass == null ? Color.BLACK
+                        : colorClass.startsWith("-fx-") ? theme.get(colorClass) : Color.web(colorClass);
+                if (packed != null && color != null) {
+                    return packed.tint(color);
+                }
+            }
+            Color defaultColor = singleColor(url);
+            if (defaultColor != null) {
+                Color color = colorClass == null ? defaultColor
+                        : colorClass.startsWith("-fx-") ? theme.get(colorClass) : Color.web(colorClass);
+                if (color != null) {
+                    // without a color class nothing is recolored, so strokes keep their own paint
+                    return loadAlphaMask(url, colorClass != null && fillStroke, width, height, scale).tint(color);
+                }
+            }
+            SVGDocument doc = documentCache.get(url);
 
             if (colorClass != null) {
                 if (colorClass.startsWith("-fx-")) {
-                    applyThemeColor(colorClass, doc, fillStroke);
+                    applyThemeColor(colorClass, theme, doc, fillStroke);
                 } else if (colorClass.startsWith("#")) {
                     applyHexColor(colorClass, doc, fillStroke);
                 } else {
                     applyHexColor(toHexString(Color.web(colorClass)), doc, fillStroke);
                 }
             }
-            doc.getDocumentElement().normalize();
-
-            String widthAttribute = doc.getDocumentElement().getAttribute("width");
-            Double imageWidth = StringUtils.isBlank(widthAttribute) ? null : Double.parseDouble(widthAttribute.replace("px", ""));
-            String heightAttribute = doc.getDocumentElement().getAttribute("height");
-            Double imageHeight = StringUtils.isBlank(heightAttribute) ? null : Double.parseDouble(heightAttribute.replace("px", ""));
-            if (imageWidth == null || imageHeight == null) {
-                String viewBox = doc.getDocumentElement().getAttribute("viewBox");
-                if (StringUtils.isNotBlank(viewBox)) {
-                    String[] parts = viewBox.split(" ");
-                    if (imageWidth == null) {
-                        imageWidth = Double.parseDouble(parts[2]);
-                    }
-                    if (imageHeight == null) {
-                        imageHeight = Double.parseDouble(parts[3]);
-                    }
-                }
+            BufferedImage rendered = transcode(doc, width, height, scale);
+            Image image = BufferedImageTranscoder.toFXImage(rendered);
+            RasterPool.release(rendered);
+            return image;
+        } catch (IOException io) {
+            log.log(Level.SEVERE,"", io);
+            throw new RuntimeException(io);
+        }
+    }
+
+    /**
+     * Returns the coverage mask of a single-color SVG, rendering it on first use.
+     *
+     * @param url        the URL of the SVG file
+     * @param fillStroke whether strokes are painted with the color too
+     * @param width      the width of the image
+     * @param height     the height of the image
+     * @param scale      the output scale
+     * @return the alpha mask
+     * @throws IOException if the resource cannot be read or parsed
+     */
+    private AlphaMask loadAlphaMask(String url, boolean fillStroke, Double width, Double height, double scale) throws IOException {
+        CacheKey key = new CacheKey(url, null, null, fillStroke, width, height, scale);
+        AlphaMask mask = maskCache.get(key);
+        if (mask == null) {
+            mask = fillStroke ? null : BiPack.getMask(url, width, height, scale);
+            if (mask == null) {
+                mask = renderAlphaMask(url, fillStroke, width, height, scale);
             }
+            maskCache.put(key, mask);
+        }
+        return mask;
+    }
 
-            if (imageWidth != null && imageHeight != null) {
-                if (width != null && height != null) {
-                    double aspectRatio = imageWidth / imageHeight;
-                    double newAspectRatio = width / height;
-                    if (newAspectRatio > aspectRatio) {
-                        width = height * aspectRatio;
-                    } else {
-                        height = width / aspectRatio;
-                    }
-                } else if (width != null) {
-                    height = width / imageWidth * imageHeight;
-                } else if (height != null) {
-                    width = height / imageHeight * imageWidth;
-                } else {
-                    width = imageWidth;
-                    height = imageHeight;
-                }
+    /**
+     * Returns the pre-rendered mask of a packed icon, from the mask cache or the pack.
+     *
+     * @param url    the URL of the SVG file
+     * @param width  the width of the image
+     * @param height the height of the image
+     * @param scale  the output scale
+     * @return the alpha mask, or null if the icon is not packed at this size
+     */
+    private AlphaMask loadPackedMask(String url, Double width, Double height, double scale) {
+        CacheKey key = new CacheKey(url, null, null, false, width, height, scale);
+        AlphaMask mask = maskCache.get(key);
+        if (mask == null) {
+            mask = BiPack.getMask(url, width, height, scale);
+            if (mask != null) {
+                maskCache.put(key, mask);
             }
+        }
+        return mask;
+    }
 
-            if (width == null) {
-                width = 300.0;
+    /**
+     * Renders the coverage mask of a single-color SVG, bypassing the mask cache.
+     *
+     * @param url        the URL of the SVG file
+     * @param fillStroke whether strokes are painted with the color too
+     * @param width      the width of the image
+     * @param height     the height of the image
+     * @param scale      the output scale
+     * @return the alpha mask
+     * @throws IOException if the resource cannot be read or parsed
+     */
+    AlphaMask renderAlphaMask(String url, boolean fillStroke, Double width, Double height, double scale) throws IOException {
+        SVGDocument doc = documentCache.get(url);
+        applyHexColor("#000000", doc, fillStroke);
+        BufferedImage rendered = transcode(doc, width, height, scale);
+        AlphaMask mask = AlphaMask.of(rendered);
+        RasterPool.release(rendered);
+        return mask;
+    }
+
+    /**
+     * Checks whether every painted element of an SVG takes its color from the root element,
+     * so that recoloring it only changes the color and never the coverage.
+     *
+     * @param url the URL of the SVG file
+     * @return the color the SVG is painted with when no color class is given,
+     *         or null if the SVG cannot be tinted from an alpha mask
+     * @throws IOException if the resource cannot be read or parsed
+     */
+    Color singleColor(String url) throws IOException {
+        Optional<Color> singleColor = singleColorSvgs.get(url);
+        if (singleColor == null) {
+            singleColor = Optional.ofNullable(singleColor(documentCache.get(url)));
+            singleColorSvgs.put(url, singleColor);
+        }
+        return singleColor.orElse(null);
+    }
+
+    /**
+     * Checks whether every painted element of a document takes its color from the root element.
+     *
+     * @param doc the SVG document
+     * @return the root fill color, or null if another element sets its own paint
+     *         or the root fill is not a plain opaque color
+     */
+    private static Color singleColor(SVGDocument doc) {
+        Element root = doc.getDocumentElement();
+        if (!isInheritedPaint(root.getAttribute("stroke")) || StringUtils.isNotBlank(root.getAttribute("style"))) {
+            return null;
+        }
+        NodeList elements = root.getElementsByTagName("*");
+        for (int i = 0; i < elements.getLength(); i++) {
+            Element element = (Element) elements.item(i);
+            if (!SINGLE_COLOR_ELEMENTS.contains(element.getLocalName())) {
+                return null;
+            }
+            for (String attribute : PAINT_ATTRIBUTES) {
+                if (!isInheritedPaint(element.getAttribute(attribute))) {
+                    return null;
+                }
             }
-            if (height == null) {
-                height = 300.0;
+            if (StringUtils.isNotBlank(element.getAttribute("style"))) {
+                return null;
             }
+        }
+        String fill = root.getAttribute("fill");
+        if ("none".equals(fill)) {
+            // nothing is painted, which an opaque tint of the mask would not reproduce
+            return null;
+        }
+        try {
+            Color color;
+            if (StringUtils.isBlank(fill) || "currentColor".equals(fill)) {
+                String current = root.getAttribute("color");
+                color = StringUtils.isBlank(current) ? Color.BLACK : Color.web(current);
+            } else {
+                color = Color.web(fill);
+            }
+            // tinting ignores opacity, so translucent defaults are left to Batik
+            return color.isOpaque() ? color : null;
+        } catch (IllegalArgumentException ex) {
+            // a paint server or another value that is not a plain color
+            return null;
+        }
+    }
 
-            doc.getDocumentElement().setAttribute("width", width + "px");
-            doc.getDocumentElement().setAttribute("height", height + "px");
-            TranscoderInput transIn = new TranscoderInput(doc);
-            try {
-                BufferedImageTranscoder trans = new BufferedImageTranscoder(width, height);
-                trans.transcode(transIn, null);
-                return SwingFXUtils.toFXImage(trans.getBufferedImage(), null);
-            } catch (TranscoderException ex) {
-                log.log(Level.SEVERE,"", ex);
-                throw new RuntimeException(ex);
+    /**
+     * Checks whether a paint attribute leaves the paint to the parent element.
+     *
+     * @param value the attribute value
+     * @return true if the value is absent, none or inherit
+     */
+    private static boolean isInheritedPaint(String value) {
+        return StringUtils.isBlank(value) || "none".equals(value) || "inherit".equals(value);
+    }
+
+    /**
+     * Sizes an SVG document to the requested size, keeping its aspect ratio, and rasterizes it.
+     *
+     * @param doc    the SVG document, modified in place
+     * @param width  the requested width, or null to derive it
+     * @param height the requested height, or null to derive it
+     * @param scale  the output scale applied to the final size
+     * @return the rendered image
+     */
+    private BufferedImage transcode(SVGDocument doc, Double width, Double height, double scale) {
+        doc.getDocumentElement().normalize();
+
+        String widthAttribute = doc.getDocumentElement().getAttribute("width");
+        Double imageWidth = StringUtils.isBlank(widthAttribute) ? null : Double.parseDouble(widthAttribute.replace("px", ""));
+        String heightAttribute = doc.getDocumentElement().getAttribute("height");
+        Double imageHeight = StringUtils.isBlank(heightAttribute) ? null : Double.parseDouble(heightAttribute.replace("px", ""));
+        if (imageWidth == null || imageHeight == null) {
+            String viewBox = doc.getDocumentElement().getAttribute("viewBox");
+            if (StringUtils.isNotBlank(viewBox)) {
+                String[] parts = viewBox.split(" ");
+                if (imageWidth == null) {
+                    imageWidth = Double.parseDouble(parts[2]);
+                }
+                if (imageHeight == null) {
+                    imageHeight = Double.parseDouble(parts[3]);
+                }
             }
-        } catch (IOException io) {
-            log.log(Level.SEVERE,"", io);
-            throw new RuntimeException(io);
         }
+
+        if (imageWidth != null && imageHeight != null) {
+            if (width != null && height != null) {
+                double aspectRatio = imageWidth / imageHeight;
+                double newAspectRatio = width / height;
+                if (newAspectRatio > aspectRatio) {
+                    width = height * aspectRatio;
+                } else {
+                    height = width / aspectRatio;
+                }
+            } else if (width != null) {
+                height = width / imageWidth * imageHeight;
+            } else if (height != null) {
+                width = height / imageHeight * imageWidth;
+            } else {
+                width = imageWidth;
+                height = imageHeight;
+            }
+        }
+
+        if (width == null) {
+            width = 300.0;
+        }
+        if (height == null) {
+            height = 300.0;
+        }
+        width *= scale;
+        height *= scale;
+
+        doc.getDocumentElement().setAttribute("width", width + "px");
+        doc.getDocumentElement().setAttribute("height", height + "px");
+        return Transcoders.transcode(doc, width, height);
     }
 
     /**
@@ -266,32 +808,128 @@ public class SvgLoader {
         return bi(name, colorClass, false);
     }
 
+    /**
+     * Loads a Bootstrap icon SVG image in the background.
+     *
+     * @param name       the name of the icon
+     * @param colorClass the color class to apply
+     * @param width      the width of the image
+     * @param height     the height of the image
+     * @return a future completed with the loaded image
+     */
+    public static CompletableFuture<Image> biAsync(String name, String colorClass, double width, double height) {
+        return getInstance().loadSvgImageAsync(BI_ICON_PATH + name + ".svg", colorClass, false, width, height);
+    }
+
+    /**
+     * Sets the capacity of the shared rasterized image cache.
+     *
+     * @param maxBytes the capacity in pixel bytes, 0 disables caching
+     */
+    public static void setImageCacheCapacity(long maxBytes) {
+        imageCache.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * Returns the capacity of the shared rasterized image cache.
+     *
+     * @return the capacity in pixel bytes
+     */
+    public static long getImageCacheCapacity() {
+        return imageCache.getMaxBytes();
+    }
+
+    /**
+     * Sets the directory renders are kept in across restarts.
+     *
+     * @param directory the directory, or null to disable the disk cache
+     */
+    public static void setDiskCacheDirectory(Path directory) {
+        SvgDiskCache.setDirectory(directory);
+    }
+
+    /**
+     * Returns the directory renders are kept in across restarts.
+     *
+     * @return the directory, or null if the disk cache is disabled
+     */
+    public static Path getDiskCacheDirectory() {
+        return SvgDiskCache.getDirectory();
+    }
+
+    /**
+     * Sets the capacity of the disk cache.
+     *
+     * @param maxBytes the capacity in bytes
+     */
+    public static void setDiskCacheCapacity(long maxBytes) {
+        SvgDiskCache.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * Returns the capacity of the disk cache.
+     *
+     * @return the capacity in bytes
+     */
+    public static long getDiskCacheCapacity() {
+        return SvgDiskCache.getMaxBytes();
+    }
+
+    /**
+     * Deletes every render kept on disk.
+     */
+    public static void clearDiskCache() {
+        SvgDiskCache.clear();
+    }
+
+    /**
+     * Checks whether the parsed document of an SVG is cached, i.e. whether it was rendered.
+     *
+     * @param url the URL of the SVG file
+     * @return true if the document is cached
+     */
+    static boolean isDocumentCached(String url) {
+        return documentCache.contains(url);
+    }
+
+    /**
+     * Removes every cached rendering of the given SVG.
+     *
+     * @param url the URL of the SVG file
+     */
+    public static void invalidateImageCache(String url) {
+        documentCache.invalidate(url);
+        singleColorSvgs.remove(url);
+        SvgDiskCache.invalidate(url);
+        maskCache.invalidateIf(key -> key.url.equals(url));
+        IconAtlas.invalidate(url);
+        imageCache.invalidateIf(key -> key.url.equals(url));
+    }
+
+    /**
+     * Removes every cached rendering.
+     */
+    public static void invalidateImageCache() {
+        documentCache.invalidateAll();
+        singleColorSvgs.clear();
+        SvgDiskCache.invalidateAll();
+        maskCache.invalidateAll();
+        IconAtlas.invalidate();
+        imageCache.invalidateAll();
+    }
+
     /**
      * Applies a theme color to an SVG document.
      *
      * @param property   the CSS property to use for the color
+     * @param theme      the parsed theme colors
      * @param document   the SVG document
      * @param fillStroke whether to fill stroke color
      */
-    private void applyThemeColor(String property, SVGDocument document, boolean fillStroke) {
-        try {
-            CssParser parser = new CssParser();
-            Stylesheet css = parser.parse(getClass().getResource(themePath).toURI().toURL());
-            final Rule rootRule = css.getRules().get(0); // .root
-            Color color = rootRule.getDeclarations().stream()
-                    .filter(d -> d.getProperty().equals(property))
-                    .findFirst()
-                    .map(d -> ColorConverter.getInstance().convert(d.getParsedValue(), null))
-                    .orElse(null);
-            if (color != null) {
-                String colorString = toHexString(color);
-                ((SVGOMSVGElement) document.getElementsByTagName("svg").item(0)).setAttribute("fill", colorString);
-                if (fillStroke) {
-                    ((SVGOMSVGElement) document.getElementsByTagName("svg").item(0)).setAttribute("stroke", colorString);
-                }
-            }
-        } catch (Exception ex) {
-            log.log(Level.SEVERE,"", ex);
+    private void applyThemeColor(String property, ThemeColors theme, SVGDocument document, boolean fillStroke) {
+        Color color = theme.get(property);
+        if (color != null) {
+            applyHexColor(toHexString(color), document, fillStroke);
         }
     }
 
@@ -326,7 +964,120 @@ public class SvgLoader {
                 (int) (255 * color.getBlue()));
     }
 
-}
+    /**
+     * Holds the pooled transcoders, so the Batik transcoder is only loaded once something is transcoded.
+     */
+    private static final class Transcoders {
+        // transcoders are not thread-safe, so each render borrows one
+        private static final InstancePool<BufferedImageTranscoder> transcoders = new InstancePool<>(
+                BufferedImageTranscoder::pooled, InstancePool.defaultMaxIdle());
+
+        /**
+         * Rasterizes a sized document with a pooled transcoder.
+         *
+         * @param doc    the SVG document
+         * @param width  the width in pixels
+         * @param height the height in pixels
+         * @return the rendered image
+         */
+        private static BufferedImage transcode(SVGDocument doc, double width, double height) {
+            BufferedImageTranscoder trans = transcoders.borrow();
+            try {
+                trans.setSize(width, height);
+                trans.transcode(new TranscoderInput(doc), null);
+                BufferedImage image = trans.takeBufferedImage();
+                // a transcoder that failed is dropped rather than reused
+                transcoders.release(trans);
+                return image;
+            } catch (TranscoderException ex) {
+                log.log(Level.SEVERE,"", ex);
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    /**
+     * A render shared by concurrent requests for the same image. It runs once, on whichever
+     * thread gets to it first, and leaves the in-flight map when it completes, fails or is
+     * cancelled, e.g. when the executor drops it on shutdown.
+     */
+    private static final class Flight extends FutureTask<Image> {
+        private final CacheKey key;
+        private final CompletableFuture<Image> result = new CompletableFuture<>();
+
+        private Flight(CacheKey key, Callable<Image> render) {
+            super(render);
+            this.key = key;
+        }
 
+        /**
+         * Fails the flight without running it, e.g. when the executor rejects it.
+         *
+         * @param cause the failure delivered to waiting callers
+         */
+        private void reject(Throwable cause) {
+            setException(cause);
+        }
 
+        @Override
+        protected void done() {
+            inFlight.remove(key, this);
+            try {
+                result.complete(get());
+            } catch (ExecutionException ex) {
+                // delivered to every waiting caller through the future
+                result.completeExceptionally(ex.getCause());
+            } catch (CancellationException | InterruptedException ex) {
+                result.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Identifies a finished rendering in the image cache.
+     * The parsed theme is only part of the key for theme colors, so a reparsed theme never hits stale entries.
+     */
+    private static final class CacheKey {
+        private final String url;
+        private final String colorClass;
+        private final ThemeColors theme;
+        private final boolean fillStroke;
+        private final Double width;
+        private final Double height;
+        private final double scale;
 
+        private CacheKey(String url, String colorClass, ThemeColors theme, boolean fillStroke, Double width, Double height, double scale) {
+            this.url = url;
+            this.colorClass = colorClass;
+            this.theme = theme;
+            this.fillStroke = fillStroke;
+            this.width = width;
+            this.height = height;
+            this.scale = scale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return fillStroke == other.fillStroke
+                    && scale == other.scale
+                    && url.equals(other.url)
+                    && Objects.equals(colorClass, other.colorClass)
+                    && theme == other.theme
+                    && Objects.equals(width, other.width)
+                    && Objects.equals(height, other.height);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(url, colorClass, theme, fillStroke, width, height, scale);
+        }
+    }
+
+}
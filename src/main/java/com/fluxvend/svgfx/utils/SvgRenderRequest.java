@@ -0,0 +1,171 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import com.fluxvend.svgfx.icons.Bi;
+
+import java.util.Objects;
+
+/**
+ * SvgRenderRequest describes one image of a batch rendered with {@link SvgLoader#loadAll(java.util.Collection)}.
+ * Equal requests are rendered once per batch.
+ */
+public final class SvgRenderRequest {
+
+    private final String url;
+    private final String colorClass;
+    private final boolean fillStroke;
+    private final Double width;
+    private final Double height;
+    private final double scale;
+
+    /**
+     * Creates a request.
+     *
+     * @param url        the URL of the SVG file
+     * @param colorClass the color class to apply, or null
+     * @param fillStroke whether to fill stroke color
+     * @param width      the width of the image in logical pixels, or null
+     * @param height     the height of the image in logical pixels, or null
+     * @param scale      the output scale of the screen
+     */
+    public SvgRenderRequest(String url, String colorClass, boolean fillStroke, Double width, Double height, double scale) {
+        this.url = Objects.requireNonNull(url, "url");
+        this.colorClass = colorClass;
+        this.fillStroke = fillStroke;
+        this.width = width;
+        this.height = height;
+        this.scale = scale > 0 ? scale : 1.0;
+    }
+
+    /**
+     * Creates a request for a square image.
+     *
+     * @param url        the URL of the SVG file
+     * @param colorClass the color class to apply, or null
+     * @param size       the width and height in logical pixels
+     * @return the request
+     */
+    public static SvgRenderRequest of(String url, String colorClass, double size) {
+        return new SvgRenderRequest(url, colorClass, false, size, size, 1.0);
+    }
+
+    /**
+     * Creates a request for a Bootstrap icon.
+     *
+     * @param bi         the icon
+     * @param colorClass the color class to apply, or null
+     * @param size       the width and height in logical pixels
+     * @return the request
+     */
+    public static SvgRenderRequest bi(Bi bi, String colorClass, double size) {
+        return bi(bi, colorClass, size, 1.0);
+    }
+
+    /**
+     * Creates a request for a Bootstrap icon at an output scale.
+     *
+     * @param bi         the icon
+     * @param colorClass the color class to apply, or null
+     * @param size       the width and height in logical pixels
+     * @param scale      the output scale of the screen
+     * @return the request
+     */
+    public static SvgRenderRequest bi(Bi bi, String colorClass, double size, double scale) {
+        return new SvgRenderRequest(SvgLoader.BI_ICON_PATH + bi.getIcon() + ".svg", colorClass, false, size, size, scale);
+    }
+
+    /**
+     * Get the URL of the SVG file
+     *
+     * @return the url
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Get the color class
+     *
+     * @return the color class, or null
+     */
+    public String getColorClass() {
+        return colorClass;
+    }
+
+    /**
+     * Get whether the stroke color is filled
+     *
+     * @return true if strokes are colored
+     */
+    public boolean isFillStroke() {
+        return fillStroke;
+    }
+
+    /**
+     * Get the width
+     *
+     * @return the width in logical pixels, or null
+     */
+    public Double getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height
+     *
+     * @return the height in logical pixels, or null
+     */
+    public Double getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the output scale
+     *
+     * @return the output scale
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SvgRenderRequest)) {
+            return false;
+        }
+        SvgRenderRequest other = (SvgRenderRequest) o;
+        return fillStroke == other.fillStroke
+                && scale == other.scale
+                && url.equals(other.url)
+                && Objects.equals(colorClass, other.colorClass)
+                && Objects.equals(width, other.width)
+                && Objects.equals(height, other.height);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(url, colorClass, fillStroke, width, height, scale);
+    }
+
+    @Override
+    public String toString() {
+        return url + (colorClass == null ? "" : " " + colorClass) + " " + width + "x" + height + "@" + scale;
+    }
+}
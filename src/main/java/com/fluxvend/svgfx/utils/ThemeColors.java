@@ -0,0 +1,251 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import javafx.css.CssParser;
+import javafx.css.Declaration;
+import javafx.css.ParsedValue;
+import javafx.css.Rule;
+import javafx.css.Selector;
+import javafx.css.Stylesheet;
+import javafx.scene.paint.Color;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ThemeColors holds the looked-up colors declared on the {@code .root} rule of a theme stylesheet.
+ * Each stylesheet is parsed once and shared until it is invalidated, or until the file changes
+ * on disk when change watching is enabled.
+ */
+final class ThemeColors {
+
+    private static Logger log = Logger.getLogger(ThemeColors.class.getName());
+
+    private static final Map<String, ThemeColors> themes = new ConcurrentHashMap<>();
+    private static volatile boolean watchChanges = Boolean.getBoolean("svgfx.theme.watch");
+
+    private final String themePath;
+    private final Map<String, Color> colors;
+    private final File sourceFile;
+    private final long lastModified;
+
+    private ThemeColors(String themePath, Map<String, Color> colors, File sourceFile) {
+        this.themePath = themePath;
+        this.colors = Collections.unmodifiableMap(colors);
+        this.sourceFile = sourceFile;
+        this.lastModified = sourceFile == null ? 0 : sourceFile.lastModified();
+    }
+
+    /**
+     * Returns the parsed colors of a theme stylesheet, parsing it on first use.
+     *
+     * @param themePath the classpath path of the stylesheet
+     * @return the theme colors, empty if the stylesheet cannot be read
+     */
+    public static ThemeColors forTheme(String themePath) {
+        ThemeColors theme = themes.computeIfAbsent(themePath, ThemeColors::parse);
+        if (watchChanges && theme.isModified()) {
+            ThemeColors reloaded = parse(themePath);
+            themes.replace(themePath, theme, reloaded);
+            theme = themes.getOrDefault(themePath, reloaded);
+        }
+        return theme;
+    }
+
+    /**
+     * Drops the parsed colors of a theme stylesheet.
+     *
+     * @param themePath the classpath path of the stylesheet
+     */
+    public static void invalidate(String themePath) {
+        if (themePath != null) {
+            themes.remove(themePath);
+        }
+    }
+
+    /**
+     * Drops the parsed colors of every theme stylesheet.
+     */
+    public static void invalidateAll() {
+        themes.clear();
+    }
+
+    /**
+     * Enables reparsing stylesheets when their file changes on disk.
+     * Only stylesheets loaded from a directory can be watched, which is mostly useful during development.
+     *
+     * @param watch whether to watch stylesheet files
+     */
+    public static void setWatchChanges(boolean watch) {
+        watchChanges = watch;
+    }
+
+    /**
+     * Returns whether stylesheet files are watched for changes.
+     *
+     * @return true if changes are watched
+     */
+    public static boolean isWatchChanges() {
+        return watchChanges;
+    }
+
+    /**
+     * Get the classpath path of the stylesheet
+     *
+     * @return the theme path
+     */
+    public String getThemePath() {
+        return themePath;
+    }
+
+    /**
+     * Get the resolved color of a looked-up color property
+     *
+     * @param property the property, e.g. {@code -fx-accent}
+     * @return the color, or null if the theme does not declare it
+     */
+    public Color get(String property) {
+        return colors.get(property);
+    }
+
+    /**
+     * Get all resolved colors of the theme
+     *
+     * @return an unmodifiable map of property to color
+     */
+    public Map<String, Color> getColors() {
+        return colors;
+    }
+
+    /**
+     * Checks whether the stylesheet file changed since it was parsed.
+     *
+     * @return true if the file was modified
+     */
+    private boolean isModified() {
+        return sourceFile != null && sourceFile.lastModified() != lastModified;
+    }
+
+    /**
+     * Parses a stylesheet and resolves the colors declared on its root rule.
+     *
+     * @param themePath the classpath path of the stylesheet
+     * @return the theme colors
+     */
+    private static ThemeColors parse(String themePath) {
+        Map<String, Color> colors = new HashMap<>();
+        File sourceFile = null;
+        try {
+            URL url = ThemeColors.class.getResource(themePath);
+            if (url == null) {
+                log.log(Level.WARNING, "Theme stylesheet not found: {0}", themePath);
+                return new ThemeColors(themePath, colors, null);
+            }
+            if ("file".equals(url.getProtocol())) {
+                sourceFile = new File(url.toURI());
+            }
+            Stylesheet css = new CssParser().parse(url);
+            Map<String, ParsedValue<?, ?>> declared = new LinkedHashMap<>();
+            for (Rule rule : rootRules(css)) {
+                for (Declaration d : rule.getDeclarations()) {
+                    declared.put(d.getProperty(), d.getParsedValue());
+                }
+            }
+            for (String property : declared.keySet()) {
+                Color color = resolve(property, declared, colors, new ArrayList<>());
+                if (color != null) {
+                    colors.put(property, color);
+                }
+            }
+        } catch (Exception ex) {
+            log.log(Level.SEVERE, "", ex);
+        }
+        return new ThemeColors(themePath, colors, sourceFile);
+    }
+
+    /**
+     * Returns the rules selecting {@code .root}, or the first rule if none does.
+     *
+     * @param css the parsed stylesheet
+     * @return the root rules
+     */
+    private static List<Rule> rootRules(Stylesheet css) {
+        List<Rule> rules = new ArrayList<>();
+        for (Rule rule : css.getRules()) {
+            for (Selector selector : rule.getSelectors()) {
+                if (selector.toString().endsWith(".root")) {
+                    rules.add(rule);
+                    break;
+                }
+            }
+        }
+        if (rules.isEmpty() && !css.getRules().isEmpty()) {
+            rules.add(css.getRules().get(0));
+        }
+        return rules;
+    }
+
+    /**
+     * Resolves a declared color, following plain references to other looked-up colors.
+     *
+     * @param property the property to resolve
+     * @param declared the declared values by property
+     * @param resolved the colors resolved so far
+     * @param visiting the properties being resolved, to stop on cycles
+     * @return the color, or null if the value is not a color
+     */
+    private static Color resolve(String property, Map<String, ParsedValue<?, ?>> declared,
+                                 Map<String, Color> resolved, List<String> visiting) {
+        Color color = resolved.get(property);
+        if (color != null || visiting.contains(property)) {
+            return color;
+        }
+        ParsedValue<?, ?> value = declared.get(property);
+        if (value == null) {
+            return null;
+        }
+        visiting.add(property);
+        try {
+            if (value.getValue() instanceof Color) {
+                return (Color) value.getValue();
+            }
+            if (value.isContainsLookups() && value.getValue() instanceof String) {
+                return resolve((String) value.getValue(), declared, resolved, visiting);
+            }
+            if (value.isContainsLookups()) {
+                return null;
+            }
+            // convert with the value's own converter, so sizes and other non-color values never become colors
+            Object converted = value.convert(null);
+            return converted instanceof Color ? (Color) converted : null;
+        } catch (RuntimeException ex) {
+            // not a color, or a color expression we cannot resolve statically
+            return null;
+        } finally {
+            visiting.remove(property);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import javafx.scene.Group;
+import javafx.scene.shape.FillRule;
+import javafx.scene.shape.SVGPath;
+import org.apache.commons.lang3.StringUtils;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.svg.SVGDocument;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * VectorIcon holds the path data of a path-only SVG icon, such as a Bootstrap icon,
+ * so it can be shown as JavaFX {@link SVGPath} nodes instead of a rasterized image.
+ * Each icon is parsed once and shared; only the nodes are created per control.
+ */
+public final class VectorIcon {
+
+    private static Logger log = Logger.getLogger(VectorIcon.class.getName());
+
+    private static final Map<String, VectorIcon> icons = new ConcurrentHashMap<>();
+
+    private final double minX;
+    private final double minY;
+    private final double width;
+    private final double height;
+    private final List<String> paths;
+    private final List<Boolean> evenOdd;
+
+    private VectorIcon(double minX, double minY, double width, double height, List<String> paths, List<Boolean> evenOdd) {
+        this.minX = minX;
+        this.minY = minY;
+        this.width = width;
+        this.height = height;
+        this.paths = Collections.unmodifiableList(paths);
+        this.evenOdd = Collections.unmodifiableList(evenOdd);
+    }
+
+    /**
+     * Returns the shared path data of an SVG icon, parsing it on first use.
+     *
+     * @param url the classpath URL of the SVG file
+     * @return the vector icon
+     */
+    public static VectorIcon forUrl(String url) {
+        return icons.computeIfAbsent(url, VectorIcon::parse);
+    }
+
+    /**
+     * Get the x origin of the icon's view box
+     *
+     * @return the x origin
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    /**
+     * Get the y origin of the icon's view box
+     *
+     * @return the y origin
+     */
+    public double getMinY() {
+        return minY;
+    }
+
+    /**
+     * Get the width of the icon's view box
+     *
+     * @return the width
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the icon's view box
+     *
+     * @return the height
+     */
+    public double getHeight() {
+        return height;
+    }
+
+    /**
+     * Creates a new group of path nodes for the icon, in view box coordinates.
+     *
+     * @return the group of {@link SVGPath} nodes
+     */
+    public Group createNode() {
+        Group group = new Group();
+        for (int i = 0; i < paths.size(); i++) {
+            SVGPath path = new SVGPath();
+            path.setContent(paths.get(i));
+            if (evenOdd.get(i)) {
+                path.setFillRule(FillRule.EVEN_ODD);
+            }
+            group.getChildren().add(path);
+        }
+        return group;
+    }
+
+    /**
+     * Reads the view box and path data of an SVG icon.
+     *
+     * @param url the classpath URL of the SVG file
+     * @return the vector icon
+     */
+    private static VectorIcon parse(String url) {
+        List<String> paths = new ArrayList<>();
+        List<Boolean> evenOdd = new ArrayList<>();
+        double minX = 0;
+        double minY = 0;
+        double width = 16;
+        double height = 16;
+        try {
+            SVGDocument doc = SvgLoader.loadDocument(url);
+            Element root = doc.getDocumentElement();
+            String viewBox = root.getAttribute("viewBox");
+            if (StringUtils.isNotBlank(viewBox)) {
+                String[] parts = viewBox.trim().split("[\\s,]+");
+                minX = Double.parseDouble(parts[0]);
+                minY = Double.parseDouble(parts[1]);
+                width = Double.parseDouble(parts[2]);
+                height = Double.parseDouble(parts[3]);
+            } else if (StringUtils.isNotBlank(root.getAttribute("width"))) {
+                width = Double.parseDouble(root.getAttribute("width").replace("px", ""));
+                height = Double.parseDouble(root.getAttribute("height").replace("px", ""));
+            }
+            NodeList nodes = doc.getElementsByTagName("path");
+            for (int i = 0; i < nodes.getLength(); i++) {
+                Element path = (Element) nodes.item(i);
+                paths.add(path.getAttribute("d"));
+                evenOdd.add("evenodd".equals(path.getAttribute("fill-rule")));
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.log(Level.SEVERE, "", ex);
+        }
+        return new VectorIcon(minX, minY, width, height, paths, evenOdd);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * WeightedCache is a thread-safe in-memory cache bounded by the total weight of its values,
+ * usually their size in bytes. Entries are evicted in least-recently-used order
+ * once the total exceeds the configured capacity.
+ *
+ * @param <K> the type of the cache keys
+ * @param <V> the type of the cached values
+ */
+class WeightedCache<K, V> {
+
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ToLongFunction<? super V> weigher;
+    private long maxBytes;
+    private long currentBytes;
+
+    /**
+     * Creates a cache holding at most the given total weight.
+     *
+     * @param maxBytes the capacity in bytes
+     * @param weigher  computes the size of a value in bytes
+     */
+    public WeightedCache(long maxBytes, ToLongFunction<? super V> weigher) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the cached value for a key and marks it as recently used.
+     *
+     * @param key the cache key
+     * @return the cached value, or null if absent
+     */
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Returns a snapshot of the cached values without marking them as recently used.
+     *
+     * @return the cached values
+     */
+    public synchronized List<V> values() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Stores a value, evicting the least recently used entries if needed.
+     * Values larger than the whole capacity are not cached.
+     *
+     * @param key   the cache key
+     * @param value the value to cache
+     */
+    public synchronized void put(K key, V value) {
+        if (key == null || value == null) {
+            return;
+        }
+        long size = sizeOf(value);
+        if (size > maxBytes) {
+            invalidate(key);
+            return;
+        }
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            currentBytes -= sizeOf(previous);
+        }
+        currentBytes += size;
+        trimToSize();
+    }
+
+    /**
+     * Removes the entry for a key.
+     *
+     * @param key the cache key
+     */
+    public synchronized void invalidate(K key) {
+        V removed = entries.remove(key);
+        if (removed != null) {
+            currentBytes -= sizeOf(removed);
+        }
+    }
+
+    /**
+     * Removes every entry whose key matches the given filter.
+     *
+     * @param filter the key filter
+     */
+    public synchronized void invalidateIf(Predicate<? super K> filter) {
+        Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, V> entry = it.next();
+            if (filter.test(entry.getKey())) {
+                currentBytes -= sizeOf(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * Get the capacity of the cache
+     *
+     * @return the capacity in bytes
+     */
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Set the capacity of the cache, evicting entries if it shrinks.
+     *
+     * @param maxBytes the capacity in bytes
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        trimToSize();
+    }
+
+    /**
+     * Get the total weight currently held
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    /**
+     * Get the number of cached values
+     *
+     * @return the entry count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Evicts least recently used entries until the cache fits its capacity.
+     */
+    private void trimToSize() {
+        Iterator<V> it = entries.values().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            currentBytes -= sizeOf(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * Weighs a value.
+     *
+     * @param value the value
+     * @return the size in bytes
+     */
+    private long sizeOf(V value) {
+        return weigher.applyAsLong(value);
+    }
+}
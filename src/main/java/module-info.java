@@ -10,10 +10,10 @@ open module svgfx {
     requires transitive batik.transcoder;
     requires transitive batik.util;
     requires transitive batik.bridge;
+    requires transitive batik.gvt;
     requires transitive batik.css;
     requires transitive batik.dom;
     requires transitive xml.apis.ext;
-    requires javafx.swing;
     requires org.apache.commons.lang3;
     requires java.compiler;
     requires java.logging;
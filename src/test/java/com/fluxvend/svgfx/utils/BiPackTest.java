@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import com.fluxvend.svgfx.icons.Bi;
+import javafx.scene.image.Image;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that packed sizes are served from the pack and other sizes fall back to rendering.
+ */
+class BiPackTest {
+
+    @Test
+    void sizeNotInThePackIsRenderedBySvgLoader() {
+        String url = Arrays.stream(Bi.values())
+                .map(bi -> SvgLoader.BI_ICON_PATH + bi.getIcon() + ".svg")
+                .filter(candidate -> BiPack.getMask(candidate, 16.0, 16.0, 1) != null)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no icon packed at 16 pixels"));
+        SvgLoader.invalidateImageCache(url);
+
+        SvgLoader.getInstance().loadSvgImage(url, null, false, 16.0, 16.0, 1);
+        assertFalse(SvgLoader.isDocumentCached(url), "a packed size must not parse the document");
+
+        assertFalse(BiPack.getSizes().contains(17));
+        assertNull(BiPack.getMask(url, 17.0, 17.0, 1));
+        Image image = SvgLoader.getInstance().loadSvgImage(url, null, false, 17.0, 17.0, 1);
+        assertTrue(SvgLoader.isDocumentCached(url), "a size missing from the pack must be rendered");
+        assertEquals(17, image.getWidth());
+        assertEquals(17, image.getHeight());
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks that transcoders share their off-screen rasters through the pool and clear them in between.
+ */
+class BufferedImageTranscoderTest {
+
+    private static final String DIR = "/com/fluxvend/svgfx/utils/";
+
+    @Test
+    void transcodersRenderIntoPooledOffScreenRasters() throws TranscoderException {
+        BufferedImage filled = render(BufferedImageTranscoder.pooled(), "fill-current.svg");
+        assertEquals(0xff, filled.getRGB(8, 8) >>> 24);
+        // the raster went back to the pool, so the transcoder no longer holds it
+        WritableRaster raster = RasterPool.acquireRaster(16, 16);
+        assertNotNull(raster);
+        RasterPool.releaseRaster(raster);
+
+        BufferedImage empty = render(BufferedImageTranscoder.pooled(), "fill-none.svg");
+        // the raster is cleared, so the first rendering does not show through
+        assertEquals(0, empty.getRGB(8, 8) >>> 24);
+        assertSame(raster, RasterPool.acquireRaster(16, 16));
+        RasterPool.release(filled);
+        RasterPool.release(empty);
+    }
+
+    @Test
+    void getBufferedImageReturnsAnUnpooledArgbImage() throws TranscoderException {
+        BufferedImageTranscoder trans = new BufferedImageTranscoder(16, 16);
+        trans.transcode(new TranscoderInput(BufferedImageTranscoderTest.class.getResource(DIR + "fill-current.svg").toString()), null);
+
+        BufferedImage image = trans.getBufferedImage();
+        assertEquals(BufferedImage.TYPE_INT_ARGB, image.getType());
+        assertEquals(0xff, image.getRGB(8, 8) >>> 24);
+    }
+
+    /**
+     * Renders a test SVG at 16x16 pixels.
+     *
+     * @param trans the transcoder
+     * @param name  the file name of the SVG
+     * @return the rendered image
+     * @throws TranscoderException if the SVG cannot be rendered
+     */
+    private static BufferedImage render(BufferedImageTranscoder trans, String name) throws TranscoderException {
+        trans.setSize(16, 16);
+        trans.transcode(new TranscoderInput(BufferedImageTranscoderTest.class.getResource(DIR + name).toString()), null);
+        BufferedImage image = trans.takeBufferedImage();
+        assertNotNull(image);
+        return image;
+    }
+}
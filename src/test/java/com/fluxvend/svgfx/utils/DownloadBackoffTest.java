@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks which downloads a failure backs off and when they are retried.
+ */
+class DownloadBackoffTest {
+
+    private static final String IMAGE = "https://images.example.com/a.png";
+    private static final String OTHER_IMAGE = "https://images.example.com/b.png";
+
+    @Test
+    void failedUrlIsBlockedUntilItSucceeds() {
+        DownloadBackoff backoff = new DownloadBackoff(60_000, 600_000);
+        backoff.failed(IMAGE, false);
+
+        assertTrue(backoff.isBlocked(IMAGE));
+        // other urls of a reachable host are still tried
+        assertFalse(backoff.isBlocked(OTHER_IMAGE));
+
+        backoff.succeeded(IMAGE);
+        assertFalse(backoff.isBlocked(IMAGE));
+    }
+
+    @Test
+    void unreachableHostBlocksAllItsUrls() {
+        DownloadBackoff backoff = new DownloadBackoff(60_000, 600_000);
+        backoff.failed(IMAGE, true);
+
+        assertTrue(backoff.isBlocked(IMAGE));
+        assertTrue(backoff.isBlocked(OTHER_IMAGE));
+        assertFalse(backoff.isBlocked("https://cdn.example.com/a.png"));
+
+        backoff.succeeded(OTHER_IMAGE);
+        assertFalse(backoff.isBlocked(IMAGE));
+    }
+
+    @Test
+    void hostFailureOfAUrlWithoutHostIsIgnored() {
+        DownloadBackoff backoff = new DownloadBackoff(60_000, 600_000);
+        backoff.failed("images/a.png", true);
+
+        assertFalse(backoff.isBlocked("images/a.png"));
+    }
+
+    @Test
+    void delayIsCappedEvenAfterManyFailures() throws InterruptedException {
+        DownloadBackoff backoff = new DownloadBackoff(1, 20);
+        // enough failures to overflow the doubled delay if it were not capped
+        for (int i = 0; i < 70; i++) {
+            backoff.failed(IMAGE, false);
+        }
+        assertTrue(backoff.isBlocked(IMAGE));
+
+        Thread.sleep(100);
+        assertFalse(backoff.isBlocked(IMAGE));
+    }
+}
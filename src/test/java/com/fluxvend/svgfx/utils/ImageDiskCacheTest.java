@@ -0,0 +1,192 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the size accounting, eviction order and atomic writes of the disk cache.
+ */
+class ImageDiskCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void evictsTheLeastRecentlyReadEntry() throws IOException {
+        ImageDiskCache cache = new ImageDiskCache(directory, 100);
+        cache.write("a", new byte[40]);
+        cache.write("b", new byte[40]);
+        // reading a makes b the least recently used
+        assertNotNull(cache.read("a"));
+        cache.write("c", new byte[40]);
+
+        assertNull(cache.read("b"));
+        assertNotNull(cache.read("a"));
+        assertNotNull(cache.read("c"));
+        assertEquals(80, cache.getCurrentBytes());
+    }
+
+    @Test
+    void metadataCountsTowardsTheCapacityAndIsEvictedWithItsEntry() throws IOException {
+        ImageDiskCache cache = new ImageDiskCache(directory, 100);
+        cache.write("a", new byte[50]);
+        cache.writeMetadata("a", metadata());
+        long sidecar = Files.size(metadataFile(cache, "a"));
+        assertEquals(50 + sidecar, cache.getCurrentBytes());
+
+        // the entry alone would fit next to a, its sidecar pushes the total over
+        cache.write("b", new byte[100 - 50 - (int) sidecar + 1]);
+
+        assertNull(cache.read("a"));
+        assertFalse(Files.exists(metadataFile(cache, "a")));
+        assertEquals(100 - 50 - sidecar + 1, cache.getCurrentBytes());
+    }
+
+    @Test
+    void metadataOfAMissingEntryIsNotStored() throws IOException {
+        ImageDiskCache cache = new ImageDiskCache(directory, 100);
+        cache.writeMetadata("missing", metadata());
+
+        assertFalse(Files.exists(metadataFile(cache, "missing")));
+        assertTrue(cache.readMetadata("missing").isEmpty());
+        assertEquals(0, cache.getCurrentBytes());
+    }
+
+    @Test
+    void reopenedCacheCountsEntriesAndSidecarsOnDisk() throws IOException {
+        ImageDiskCache cache = new ImageDiskCache(directory, 1000);
+        cache.write("a", new byte[30]);
+        cache.write("b", new byte[20]);
+        cache.writeMetadata("b", metadata());
+
+        ImageDiskCache reopened = new ImageDiskCache(directory, 1000);
+        assertEquals(cache.getCurrentBytes(), reopened.getCurrentBytes());
+        assertEquals(bytesOnDisk(), reopened.getCurrentBytes());
+    }
+
+    @Test
+    void concurrentWritesKeepTheTotalInLineWithTheDirectory() throws Exception {
+        ImageDiskCache cache = new ImageDiskCache(directory, 500);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Void>> writes = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String key = "key" + (i % 40);
+                byte[] data = new byte[10 + i % 7];
+                Arrays.fill(data, (byte) i);
+                writes.add(() -> {
+                    cache.write(key, data);
+                    cache.writeMetadata(key, metadata());
+                    return null;
+                });
+            }
+            for (Future<Void> write : pool.invokeAll(writes)) {
+                write.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertTrue(cache.getCurrentBytes() <= 500);
+        assertEquals(bytesOnDisk(), cache.getCurrentBytes());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(), files.filter(file -> file.toString().endsWith(".tmp")).collect(Collectors.toList()));
+        }
+        // every stored entry holds one whole write, never a mix of two
+        for (int i = 0; i < 40; i++) {
+            byte[] data = cache.read("key" + i);
+            if (data != null) {
+                byte[] expected = new byte[data.length];
+                Arrays.fill(expected, data[0]);
+                assertArrayEquals(expected, data);
+            }
+        }
+    }
+
+    @Test
+    void deletesOnlyTemporaryFilesLeftByAnEarlierRun() throws IOException {
+        Path stale = Files.write(directory.resolve("stale.png1.tmp"), new byte[10]);
+        assertTrue(stale.toFile().setLastModified(System.currentTimeMillis() - 10 * 60 * 1000L));
+        Path fresh = Files.write(directory.resolve("fresh.png2.tmp"), new byte[10]);
+
+        new ImageDiskCache(directory, 100).getCurrentBytes();
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(fresh));
+    }
+
+    /**
+     * Builds the metadata stored with a test entry.
+     *
+     * @return the metadata
+     */
+    private static Properties metadata() {
+        Properties metadata = new Properties();
+        metadata.setProperty("etag", "\"v1\"");
+        return metadata;
+    }
+
+    /**
+     * Returns the metadata sidecar of an entry.
+     *
+     * @param cache the cache
+     * @param key   the entry key
+     * @return the sidecar file
+     */
+    private static Path metadataFile(ImageDiskCache cache, String key) {
+        String name = cache.file(key).getFileName().toString();
+        return cache.file(key).resolveSibling(name.substring(0, name.length() - ".png".length()) + ".meta");
+    }
+
+    /**
+     * Sums the sizes of the entries and sidecars in the cache directory.
+     *
+     * @return the size in bytes
+     * @throws IOException if the directory cannot be listed
+     */
+    private long bytesOnDisk() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            long total = 0;
+            for (Path file : files.filter(file -> !file.toString().endsWith(".tmp")).collect(Collectors.toList())) {
+                total += Files.size(file);
+            }
+            return total;
+        }
+    }
+}
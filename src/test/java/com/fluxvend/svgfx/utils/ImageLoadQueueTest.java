@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the order queued loads run in and that cancelled loads neither run nor call back.
+ */
+class ImageLoadQueueTest {
+
+    @Test
+    void runsHighestPriorityFirstAndNewestFirstWithinAPriority() throws Exception {
+        ImageLoadQueue queue = new ImageLoadQueue(1, "image-load-test-");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+        // occupies the only thread, so the loads below queue up
+        queue.submit(0, () -> {
+            started.countDown();
+            release.await();
+            return null;
+        }, null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        queue.submit(Imagefx.PRIORITY_NORMAL, () -> order.add("normal-old"), null);
+        queue.submit(Imagefx.PRIORITY_VISIBLE, () -> order.add("visible-old"), null);
+        queue.submit(Imagefx.PRIORITY_NORMAL, () -> order.add("normal-new"), null);
+        queue.submit(Imagefx.PRIORITY_VISIBLE, () -> order.add("visible-new"), null);
+        // the lowest priority runs last, once the others are done
+        Future<Boolean> last = queue.submit(Integer.MIN_VALUE, () -> true, null);
+        release.countDown();
+
+        last.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("visible-new", "visible-old", "normal-new", "normal-old"), order);
+    }
+
+    @Test
+    void cancelledQueuedLoadDoesNotRunOrCallBack() throws Exception {
+        ImageLoadQueue queue = new ImageLoadQueue(1, "image-load-test-");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> running = queue.submit(0, () -> {
+            started.countDown();
+            release.await();
+            return "done";
+        }, null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<String> calls = new CopyOnWriteArrayList<>();
+        Future<String> queued = queue.submit(0, () -> {
+            calls.add("run");
+            return "image";
+        }, image -> calls.add("callback"));
+        assertTrue(queued.cancel(true));
+        // a running load is never interrupted, it finishes and only its result is dropped
+        assertTrue(running.cancel(true));
+        release.countDown();
+
+        Future<String> after = queue.submit(0, () -> "after", null);
+        assertEquals("after", after.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(), calls);
+        assertFalse(queued.cancel(true));
+    }
+
+    @Test
+    void rejectsFewerThanOneThread() {
+        ImageLoadQueue queue = new ImageLoadQueue(2, "image-load-test-");
+        assertThrows(IllegalArgumentException.class, () -> queue.setThreads(0));
+        queue.setThreads(4);
+        assertEquals(4, queue.getThreads());
+        queue.setThreads(1);
+        assertEquals(1, queue.getThreads());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks how downloaded images are decoded and fitted into the requested size, and that concurrent
+ * loads of one image share the work, against a local server.
+ */
+class ImagefxLoadTest {
+
+    private static final int RED = 0xFFFF0000;
+    private static final int BLUE = 0xFF0000FF;
+
+    private static final AtomicInteger slowRequests = new AtomicInteger();
+    private static final CountDownLatch slowRequested = new CountDownLatch(1);
+    private static final CountDownLatch releaseSlow = new CountDownLatch(1);
+    private static HttpServer server;
+    private static Path directory;
+    private static byte[] stripes;
+    private Path previousDirectory;
+    private long previousMemoryCapacity;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        directory = Files.createTempDirectory("imagefx-load-test");
+
+        // red on every tenth row and column, blue elsewhere
+        BufferedImage image = new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, x % 10 == 0 && y % 10 == 0 ? RED : BLUE);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        stripes = out.toByteArray();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/slow.png", exchange -> {
+            slowRequests.incrementAndGet();
+            slowRequested.countDown();
+            try {
+                releaseSlow.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, stripes.length);
+            exchange.getResponseBody().write(stripes);
+            exchange.close();
+        });
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, stripes.length);
+            exchange.getResponseBody().write(stripes);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @BeforeEach
+    void useTemporaryDiskCache() {
+        previousDirectory = Imagefx.getDiskCacheDirectory();
+        previousMemoryCapacity = Imagefx.getMemoryCacheCapacity();
+        Imagefx.setDiskCacheDirectory(directory);
+    }
+
+    @AfterEach
+    void restoreCaches() {
+        Imagefx.setDiskCacheDirectory(previousDirectory);
+        Imagefx.setMemoryCacheCapacity(previousMemoryCapacity);
+    }
+
+    @AfterAll
+    static void stopServer() throws IOException {
+        server.stop(0);
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    void largeSourceIsSubsampledAndCenteredInTheTargetSize() {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/stripes.png";
+
+        Image image = Imagefx.loadImage(url, 40, 40);
+
+        assertEquals(40, image.getWidth());
+        assertEquals(40, image.getHeight());
+        PixelReader pixels = image.getPixelReader();
+        // decoding every tenth pixel keeps only the red ones, scaling the full image would hit blue ones
+        for (int y = 10; y < 30; y++) {
+            for (int x = 0; x < 40; x++) {
+                assertEquals(RED, pixels.getArgb(x, y), "pixel " + x + "," + y);
+            }
+        }
+        // the 2:1 image is centered vertically in target pixels
+        assertNotEquals(RED, pixels.getArgb(20, 5));
+        assertNotEquals(RED, pixels.getArgb(20, 34));
+    }
+
+    @Test
+    void concurrentLoadsOfOneUrlAndSizeShareOneDownload() throws Exception {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/slow.png";
+        // without the memory cache, a caller that did not share the load would decode its own image
+        Imagefx.setMemoryCacheCapacity(0);
+
+        CompletableFuture<Image> first = CompletableFuture.supplyAsync(() -> Imagefx.loadImage(url, 20, 20));
+        assertTrue(slowRequested.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Image> second = new CompletableFuture<>();
+        Thread waiter = new Thread(() -> second.complete(Imagefx.loadImage(url, 20, 20)));
+        waiter.start();
+        // the second caller parks on the running load before the download is let through
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (waiter.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        releaseSlow.countDown();
+
+        Image image = first.get(10, TimeUnit.SECONDS);
+        assertSame(image, second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, slowRequests.get());
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpServer;
+import javafx.scene.image.Image;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that cached downloads are revalidated with conditional requests against a local server.
+ */
+class ImagefxRevalidationTest {
+
+    private static final String ETAG = "\"v1\"";
+    private static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT";
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static final List<Headers> requests = new CopyOnWriteArrayList<>();
+    private static final List<Integer> responses = new CopyOnWriteArrayList<>();
+    private static final AtomicInteger failingRequests = new AtomicInteger();
+    private static final AtomicInteger corruptRequests = new AtomicInteger();
+    private static HttpServer server;
+    private static Path directory;
+    private Path previousDirectory;
+    private long previousMemoryCapacity;
+    private static byte[] png;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        directory = Files.createTempDirectory("imagefx-test");
+
+        BufferedImage image = new BufferedImage(40, 40, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        png = out.toByteArray();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/failing.png", exchange -> {
+            failingRequests.incrementAndGet();
+            if (failingRequests.get() == 1) {
+                exchange.sendResponseHeaders(200, png.length);
+                exchange.getResponseBody().write(png);
+            } else {
+                exchange.sendResponseHeaders(500, -1);
+            }
+            exchange.close();
+        });
+        server.createContext("/corrupt.png", exchange -> {
+            corruptRequests.incrementAndGet();
+            exchange.sendResponseHeaders(200, png.length);
+            exchange.getResponseBody().write(png);
+            exchange.close();
+        });
+        server.createContext("/", exchange -> {
+            requests.add(exchange.getRequestHeaders());
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                responses.add(304);
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                responses.add(200);
+                exchange.sendResponseHeaders(200, png.length);
+                exchange.getResponseBody().write(png);
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @BeforeEach
+    void useTemporaryDiskCache() {
+        previousDirectory = Imagefx.getDiskCacheDirectory();
+        previousMemoryCapacity = Imagefx.getMemoryCacheCapacity();
+        Imagefx.setDiskCacheDirectory(directory);
+    }
+
+    @AfterEach
+    void restoreCaches() {
+        Imagefx.setDiskCacheDirectory(previousDirectory);
+        Imagefx.setMemoryCacheCapacity(previousMemoryCapacity);
+    }
+
+    @AfterAll
+    static void stopServer() throws IOException {
+        server.stop(0);
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    void revalidatesStaleEntryWithConditionalRequest() throws IOException {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/image.png";
+        Imagefx.setMemoryCacheCapacity(0);
+        ImageDiskCache diskCache = Imagefx.getDiskCache();
+        assertEquals(directory, diskCache.getDirectory());
+
+        Image first = Imagefx.loadImage(url, 20, 20);
+        assertNotNull(first);
+        assertEquals(List.of(200), responses);
+        assertNull(requests.get(0).getFirst("If-None-Match"));
+        Properties stored = diskCache.readMetadata(url);
+        assertEquals(ETAG, stored.getProperty("etag"));
+        assertEquals(LAST_MODIFIED, stored.getProperty("last-modified"));
+        byte[] cached = diskCache.read(url);
+        assertNotNull(cached);
+
+        // a fresh entry is served without asking the server
+        Imagefx.loadImage(url, 20, 20);
+        assertEquals(1, requests.size());
+
+        long aged = System.currentTimeMillis() - 2 * DAY_MILLIS;
+        stored.setProperty("validated", Long.toString(aged));
+        diskCache.writeMetadata(url, stored);
+
+        Image second = Imagefx.loadImage(url, 20, 20);
+        assertNotNull(second);
+        assertEquals(List.of(200, 304), responses);
+        Headers conditional = requests.get(1);
+        assertEquals(ETAG, conditional.getFirst("If-None-Match"));
+        assertEquals(LAST_MODIFIED, conditional.getFirst("If-Modified-Since"));
+        assertArrayEquals(cached, diskCache.read(url));
+        Properties refreshed = diskCache.readMetadata(url);
+        assertEquals(ETAG, refreshed.getProperty("etag"));
+        assertTrue(Long.parseLong(refreshed.getProperty("validated")) > aged);
+    }
+
+    @Test
+    void servesStaleImageFromMemoryWhileBackedOff() throws IOException {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/failing.png";
+        Imagefx.setMemoryCacheCapacity(Imagefx.DEFAULT_MEMORY_CACHE_BYTES);
+        ImageDiskCache diskCache = Imagefx.getDiskCache();
+
+        Imagefx.loadImage(url, 30, 30);
+        Properties stored = diskCache.readMetadata(url);
+        stored.setProperty("validated", Long.toString(System.currentTimeMillis() - 2 * DAY_MILLIS));
+        diskCache.writeMetadata(url, stored);
+
+        // a different size misses memory, revalidates, fails and falls back to the stale copy
+        Image stale = Imagefx.loadImage(url, 31, 31);
+        assertNotNull(stale);
+        assertEquals(2, failingRequests.get());
+        // while the url is backed off the stale copy comes from memory, without a request
+        assertSame(stale, Imagefx.loadImage(url, 31, 31));
+        assertEquals(2, failingRequests.get());
+    }
+
+    @Test
+    void downloadsAgainWhenTheCachedEntryCannotBeDecoded() throws IOException {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/corrupt.png";
+        Imagefx.setMemoryCacheCapacity(0);
+        ImageDiskCache diskCache = Imagefx.getDiskCache();
+        byte[] corrupt = "not an image".getBytes(StandardCharsets.US_ASCII);
+        diskCache.write(url, corrupt);
+        Properties fresh = new Properties();
+        fresh.setProperty("validated", Long.toString(System.currentTimeMillis()));
+        diskCache.writeMetadata(url, fresh);
+
+        Image image = Imagefx.loadImage(url, 20, 20);
+        assertNotNull(image);
+        assertEquals(1, corruptRequests.get());
+        byte[] replaced = diskCache.read(url);
+        assertNotNull(replaced);
+        assertNotNull(ImageIO.read(new ByteArrayInputStream(replaced)));
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import javafx.application.Platform;
+import javafx.util.Duration;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that superseded renders are neither applied nor interrupted, and that bursts of requests coalesce.
+ * Needs the JavaFX toolkit, so it is skipped where no display is available.
+ */
+class RenderCoalescerTest {
+
+    private static boolean toolkit;
+
+    @BeforeAll
+    static void startToolkit() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Platform.startup(started::countDown);
+            toolkit = started.await(10, TimeUnit.SECONDS);
+        } catch (IllegalStateException e) {
+            // already started by another test
+            toolkit = true;
+        } catch (RuntimeException | UnsatisfiedLinkError e) {
+            toolkit = false;
+        }
+    }
+
+    @Test
+    void supersededRenderIsNotAppliedNorInterrupted() throws Exception {
+        assumeTrue(toolkit, "no JavaFX toolkit");
+        AtomicInteger state = new AtomicInteger();
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch firstDone = new CountDownLatch(1);
+        List<Integer> applied = new CopyOnWriteArrayList<>();
+        CountDownLatch appliedOnce = new CountDownLatch(1);
+        Supplier<Supplier<Integer>> snapshot = () -> {
+            int value = state.get();
+            return () -> {
+                if (value == 1) {
+                    try {
+                        releaseFirst.await();
+                    } catch (InterruptedException e) {
+                        interrupted.set(true);
+                    }
+                    interrupted.compareAndSet(false, Thread.currentThread().isInterrupted());
+                    firstDone.countDown();
+                }
+                return value;
+            };
+        };
+
+        onFx(() -> {
+            RenderCoalescer<Integer> coalescer = new RenderCoalescer<>(snapshot, value -> {
+                applied.add(value);
+                appliedOnce.countDown();
+            });
+            coalescer.setWindow(Duration.ZERO);
+            state.set(1);
+            coalescer.request();
+            state.set(2);
+            coalescer.request();
+        });
+
+        assertTrue(appliedOnce.await(10, TimeUnit.SECONDS));
+        releaseFirst.countDown();
+        assertTrue(firstDone.await(10, TimeUnit.SECONDS));
+        // give the finished render time to post its result before checking it was dropped
+        Thread.sleep(100);
+        onFx(() -> { });
+
+        assertEquals(List.of(2), applied);
+        assertFalse(interrupted.get());
+    }
+
+    @Test
+    void burstRendersRightAwayAndOnceMoreAfterTheWindow() throws Exception {
+        assumeTrue(toolkit, "no JavaFX toolkit");
+        AtomicInteger state = new AtomicInteger();
+        AtomicInteger renders = new AtomicInteger();
+        List<Integer> applied = new CopyOnWriteArrayList<>();
+        CountDownLatch appliedOnce = new CountDownLatch(1);
+        Supplier<Supplier<Integer>> snapshot = () -> {
+            int value = state.get();
+            return () -> {
+                renders.incrementAndGet();
+                return value;
+            };
+        };
+
+        onFx(() -> {
+            RenderCoalescer<Integer> coalescer = new RenderCoalescer<>(snapshot, value -> {
+                applied.add(value);
+                appliedOnce.countDown();
+            });
+            coalescer.setWindow(Duration.millis(200));
+            for (int i = 1; i <= 5; i++) {
+                state.set(i);
+                coalescer.request();
+            }
+        });
+
+        // the first render starts right away, but a newer request came in before it finished
+        assertTrue(appliedOnce.await(10, TimeUnit.SECONDS));
+        assertEquals(2, renders.get());
+        assertEquals(List.of(5), applied);
+    }
+
+    @Test
+    void cancelledRenderIsNotApplied() throws Exception {
+        assumeTrue(toolkit, "no JavaFX toolkit");
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<Integer> applied = new CopyOnWriteArrayList<>();
+        Supplier<Supplier<Integer>> snapshot = () -> () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+            return 1;
+        };
+
+        onFx(() -> {
+            RenderCoalescer<Integer> coalescer = new RenderCoalescer<>(snapshot, applied::add);
+            coalescer.request();
+            coalescer.cancel();
+        });
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        // give the finished render time to post its result before checking it was dropped
+        Thread.sleep(100);
+        onFx(() -> { });
+
+        assertEquals(List.of(), applied);
+    }
+
+    /**
+     * Runs an action on the JavaFX application thread and waits for it, and for the events queued before it.
+     *
+     * @param action the action
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void onFx(Runnable action) throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            try {
+                action.run();
+            } finally {
+                ran.countDown();
+            }
+        });
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+    }
+}
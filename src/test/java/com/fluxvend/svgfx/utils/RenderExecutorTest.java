@@ -0,0 +1,103 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the shared render executor bounds concurrent renders and can be stopped and restarted.
+ */
+class RenderExecutorTest {
+
+    private int previousParallelism;
+
+    @BeforeEach
+    void rememberParallelism() {
+        previousParallelism = RenderExecutor.getParallelism();
+    }
+
+    @AfterEach
+    void restoreParallelism() {
+        RenderExecutor.setParallelism(previousParallelism);
+    }
+
+    @Test
+    void runsAtMostTheConfiguredNumberOfRendersAtOnce() throws InterruptedException {
+        RenderExecutor.setParallelism(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(6);
+        for (int i = 0; i < 6; i++) {
+            RenderExecutor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    void shutdownCancelsRendersStillQueuedAfterTheTimeout() throws Exception {
+        RenderExecutor.setParallelism(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RenderExecutor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        FutureTask<String> queued = new FutureTask<>(() -> "queued");
+        RenderExecutor.execute(queued);
+
+        assertFalse(RenderExecutor.shutdown(50, TimeUnit.MILLISECONDS));
+        assertTrue(queued.isCancelled());
+        release.countDown();
+
+        // a later render starts a fresh executor
+        FutureTask<String> later = new FutureTask<>(() -> Thread.currentThread().getName());
+        RenderExecutor.execute(later);
+        assertTrue(later.get(5, TimeUnit.SECONDS).startsWith("svgfx-render-"));
+    }
+
+    @Test
+    void rejectsFewerThanOneThread() {
+        assertThrows(IllegalArgumentException.class, () -> RenderExecutor.setParallelism(0));
+    }
+}
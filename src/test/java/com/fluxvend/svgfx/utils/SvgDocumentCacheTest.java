@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.svg.SVGDocument;
+
+import java.io.FileNotFoundException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that parsed templates are cached per url and that callers only ever change their own copy.
+ */
+class SvgDocumentCacheTest {
+
+    private static final String FILL_CURRENT = "/com/fluxvend/svgfx/utils/fill-current.svg";
+    private static final String FILL_NONE = "/com/fluxvend/svgfx/utils/fill-none.svg";
+
+    @Test
+    void changesToAReturnedDocumentDoNotReachTheTemplate() throws Exception {
+        SvgDocumentCache cache = new SvgDocumentCache(4);
+        SVGDocument first = cache.get(FILL_CURRENT);
+        first.getRootElement().setAttribute("fill", "#ff0000");
+        first.getRootElement().setAttribute("width", "64");
+
+        SVGDocument second = cache.get(FILL_CURRENT);
+        assertNotSame(first, second);
+        assertEquals("currentColor", second.getRootElement().getAttribute("fill"));
+        assertEquals("16", second.getRootElement().getAttribute("width"));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedTemplate() throws Exception {
+        SvgDocumentCache cache = new SvgDocumentCache(1);
+        cache.get(FILL_CURRENT);
+        assertTrue(cache.contains(FILL_CURRENT));
+
+        cache.get(FILL_NONE);
+        assertFalse(cache.contains(FILL_CURRENT));
+        assertTrue(cache.contains(FILL_NONE));
+
+        cache.invalidate(FILL_NONE);
+        assertFalse(cache.contains(FILL_NONE));
+    }
+
+    @Test
+    void missingResourceIsNotCached() {
+        SvgDocumentCache cache = new SvgDocumentCache(4);
+        String missing = "/com/fluxvend/svgfx/utils/missing.svg";
+
+        assertThrows(FileNotFoundException.class, () -> cache.get(missing));
+        assertFalse(cache.contains(missing));
+    }
+}
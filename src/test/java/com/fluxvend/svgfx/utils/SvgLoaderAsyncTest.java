@@ -0,0 +1,97 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import javafx.scene.image.Image;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that concurrent loads of the same image share one render and never wait on a queued one.
+ */
+class SvgLoaderAsyncTest {
+
+    private static final String URL = "/com/fluxvend/svgfx/utils/fill-current.svg";
+
+    @BeforeEach
+    void forgetRenders() {
+        SvgLoader.invalidateImageCache(URL);
+    }
+
+    @AfterEach
+    void restoreExecutor() {
+        SvgLoader.setAsyncExecutor(null);
+    }
+
+    @Test
+    void concurrentLoadsShareOneQueuedRender() {
+        List<Runnable> queued = new CopyOnWriteArrayList<>();
+        SvgLoader.setAsyncExecutor(queued::add);
+        SvgLoader loader = SvgLoader.getInstance();
+
+        CompletableFuture<Image> first = loader.loadSvgImageAsync(URL, null, false, 21.0, 21.0, 1);
+        CompletableFuture<Image> second = loader.loadSvgImageAsync(URL, null, false, 21.0, 21.0, 1);
+        assertEquals(1, queued.size());
+
+        // the queued render runs on the synchronous caller, and every caller gets its image
+        Image image = loader.loadSvgImage(URL, null, false, 21.0, 21.0, 1);
+        assertSame(image, first.join());
+        assertSame(image, second.join());
+        // the executor reaching the flight later does not render again
+        queued.get(0).run();
+        assertSame(image, loader.loadSvgImage(URL, null, false, 21.0, 21.0, 1));
+    }
+
+    @Test
+    void synchronousLoadOnTheOnlyRenderThreadDoesNotWaitForItsOwnQueue() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        SvgLoader.setAsyncExecutor(single);
+        try {
+            SvgLoader loader = SvgLoader.getInstance();
+            AtomicReference<CompletableFuture<Image>> async = new AtomicReference<>();
+            CompletableFuture<Image> nested = new CompletableFuture<>();
+            single.execute(() -> {
+                // queued behind this task, then needed by it
+                async.set(loader.loadSvgImageAsync(URL, null, false, 22.0, 22.0, 1));
+                nested.complete(loader.loadSvgImage(URL, null, false, 22.0, 22.0, 1));
+            });
+
+            Image image = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> nested.get());
+            assertNotNull(image);
+            assertEquals(22, image.getWidth());
+            assertSame(image, async.get().get(5, TimeUnit.SECONDS));
+        } finally {
+            single.shutdown();
+            assertTrue(single.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+}
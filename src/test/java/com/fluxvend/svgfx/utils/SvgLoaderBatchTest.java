@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import javafx.scene.image.Image;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a batch renders each distinct image once, in request order, and leaves out broken files.
+ */
+class SvgLoaderBatchTest {
+
+    private static final String FILL_CURRENT = "/com/fluxvend/svgfx/utils/fill-current.svg";
+    private static final String FILL_NONE = "/com/fluxvend/svgfx/utils/fill-none.svg";
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void useOwnPool() {
+        pool = new ForkJoinPool(2);
+        SvgLoader.setBatchPool(pool);
+    }
+
+    @AfterEach
+    void restorePool() throws InterruptedException {
+        SvgLoader.setBatchPool(null);
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void rendersDistinctRequestsInRequestOrder() {
+        SvgRenderRequest none = SvgRenderRequest.of(FILL_NONE, null, 19);
+        SvgRenderRequest current = SvgRenderRequest.of(FILL_CURRENT, "#336699", 19);
+        SvgRenderRequest missing = SvgRenderRequest.of("/com/fluxvend/svgfx/utils/missing.svg", null, 19);
+        SvgLoader loader = SvgLoader.getInstance();
+
+        Map<SvgRenderRequest, Image> images = loader.loadAll(List.of(
+                none, current, SvgRenderRequest.of(FILL_NONE, null, 19), missing));
+
+        // the duplicate is rendered once and the missing file is left out
+        assertEquals(List.of(none, current), List.copyOf(images.keySet()));
+        assertEquals(19, images.get(current).getWidth());
+        // batch renders go through the regular cache
+        assertSame(images.get(current), loader.loadSvgImage(FILL_CURRENT, "#336699", false, 19.0, 19.0, 1));
+    }
+
+    @Test
+    void emptyBatchCompletesWithNoImages() {
+        assertEquals(Map.of(), SvgLoader.getInstance().loadAll(List.of()));
+    }
+}
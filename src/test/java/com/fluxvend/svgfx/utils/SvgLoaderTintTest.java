@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks which SVGs are tinted from an alpha mask and that tinting matches what Batik paints.
+ */
+class SvgLoaderTintTest {
+
+    private static final String DIR = "/com/fluxvend/svgfx/utils/";
+
+    @Test
+    void rootFillNoneIsNotTintedAndStaysTransparent() throws IOException {
+        String url = DIR + "fill-none.svg";
+        assertNull(SvgLoader.getInstance().singleColor(url));
+        assertEquals(0, centerAlpha(SvgLoader.getInstance().loadSvgImage(url, null, false, 16.0, 16.0, 1)));
+    }
+
+    @Test
+    void currentColorIsTintedOpaque() throws IOException {
+        String url = DIR + "fill-current.svg";
+        assertEquals(Color.BLACK, SvgLoader.getInstance().singleColor(url));
+        Image black = SvgLoader.getInstance().loadSvgImage(url, null, false, 16.0, 16.0, 1);
+        assertEquals(0xff000000, black.getPixelReader().getArgb(8, 8));
+        // opacity of the color class is ignored, as on the Batik path
+        Image red = SvgLoader.getInstance().loadSvgImage(url, "rgba(255,0,0,0.5)", false, 16.0, 16.0, 1);
+        assertEquals(0xffff0000, red.getPixelReader().getArgb(8, 8));
+    }
+
+    /**
+     * Returns the alpha of the center pixel.
+     *
+     * @param image the image
+     * @return the alpha from 0 to 255
+     */
+    private static int centerAlpha(Image image) {
+        int argb = image.getPixelReader().getArgb((int) image.getWidth() / 2, (int) image.getHeight() / 2);
+        return argb >>> 24;
+    }
+}
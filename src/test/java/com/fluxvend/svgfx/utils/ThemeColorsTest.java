@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks how the looked-up colors of a theme stylesheet are resolved and shared.
+ */
+class ThemeColorsTest {
+
+    private static final String THEME = "/com/fluxvend/svgfx/utils/test-theme.css";
+
+    @AfterEach
+    void forgetThemes() {
+        ThemeColors.invalidateAll();
+    }
+
+    @Test
+    void resolvesRootColorsAndTheirReferences() {
+        ThemeColors theme = ThemeColors.forTheme(THEME);
+
+        assertEquals(Color.web("#336699"), theme.get("-fx-base"));
+        assertEquals(Color.web("#336699"), theme.get("-fx-accent"));
+        assertEquals(Color.RED, theme.get("-fx-named"));
+    }
+
+    @Test
+    void skipsValuesThatAreNotPlainColors() {
+        ThemeColors theme = ThemeColors.forTheme(THEME);
+
+        // cycles end instead of overflowing, and sizes never become colors
+        assertNull(theme.get("-fx-loop-a"));
+        assertNull(theme.get("-fx-gap"));
+        assertNull(theme.get("-fx-derived"));
+        // only the root rule declares theme colors
+        assertNull(theme.get("-fx-button-only"));
+    }
+
+    @Test
+    void parsesEachStylesheetOnceUntilInvalidated() {
+        ThemeColors theme = ThemeColors.forTheme(THEME);
+        assertSame(theme, ThemeColors.forTheme(THEME));
+
+        ThemeColors.invalidate(THEME);
+        ThemeColors reparsed = ThemeColors.forTheme(THEME);
+        assertNotSame(theme, reparsed);
+        assertEquals(theme.getColors(), reparsed.getColors());
+    }
+
+    @Test
+    void missingStylesheetHasNoColors() {
+        assertTrue(ThemeColors.forTheme("/com/fluxvend/svgfx/utils/missing.css").getColors().isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import javafx.scene.Group;
+import javafx.scene.shape.FillRule;
+import javafx.scene.shape.SVGPath;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks that an icon's path data is parsed once and turned into fresh path nodes for every caller.
+ */
+class VectorIconTest {
+
+    private static final String TWO_PATHS = "/com/fluxvend/svgfx/utils/two-paths.svg";
+
+    @Test
+    void readsTheViewBoxAndSharesTheParsedIcon() {
+        VectorIcon icon = VectorIcon.forUrl(TWO_PATHS);
+
+        assertSame(icon, VectorIcon.forUrl(TWO_PATHS));
+        assertEquals(2, icon.getMinX());
+        assertEquals(1, icon.getMinY());
+        assertEquals(24, icon.getWidth());
+        assertEquals(20, icon.getHeight());
+    }
+
+    @Test
+    void createsNewPathNodesKeepingTheFillRule() {
+        VectorIcon icon = VectorIcon.forUrl(TWO_PATHS);
+        Group first = icon.createNode();
+        Group second = icon.createNode();
+
+        assertNotSame(first, second);
+        assertEquals(2, first.getChildren().size());
+        SVGPath square = (SVGPath) first.getChildren().get(0);
+        SVGPath frame = (SVGPath) first.getChildren().get(1);
+        assertEquals("M2 2h12v12H2z", square.getContent());
+        assertEquals(FillRule.NON_ZERO, square.getFillRule());
+        assertEquals(FillRule.EVEN_ODD, frame.getFillRule());
+    }
+
+    @Test
+    void missingIconHasNoPaths() {
+        VectorIcon icon = VectorIcon.forUrl("/com/fluxvend/svgfx/utils/missing.svg");
+
+        assertEquals(16, icon.getWidth());
+        assertEquals(0, icon.createNode().getChildren().size());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2024 Fluxvend
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the “Software”),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.fluxvend.svgfx.utils;
+
+import javafx.scene.image.WritableImage;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that the memory caches evict by weight in least-recently-used order.
+ */
+class WeightedCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesOverCapacity() {
+        WeightedCache<String, String> cache = new WeightedCache<>(10, String::length);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        // reading a makes b the least recently used
+        assertNotNull(cache.get("a"));
+        cache.put("c", "cccc");
+
+        assertNull(cache.get("b"));
+        assertEquals("aaaa", cache.get("a"));
+        assertEquals("cccc", cache.get("c"));
+        assertEquals(8, cache.getCurrentBytes());
+    }
+
+    @Test
+    void replacingAnEntryCountsOnlyTheNewValue() {
+        WeightedCache<String, String> cache = new WeightedCache<>(10, String::length);
+        cache.put("a", "aaaa");
+        cache.put("a", "aaaaaa");
+
+        assertEquals(1, cache.size());
+        assertEquals(6, cache.getCurrentBytes());
+    }
+
+    @Test
+    void valueLargerThanTheCapacityIsNotCachedAndDropsTheOldOne() {
+        WeightedCache<String, String> cache = new WeightedCache<>(10, String::length);
+        cache.put("a", "aaaa");
+        cache.put("a", "aaaaaaaaaaaa");
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getCurrentBytes());
+    }
+
+    @Test
+    void shrinkingTheCapacityEvictsAndInvalidationReleasesWeight() {
+        WeightedCache<String, String> cache = new WeightedCache<>(10, String::length);
+        cache.put("a", "aaa");
+        cache.put("b", "bbb");
+        cache.put("c", "ccc");
+
+        cache.setMaxBytes(6);
+        assertNull(cache.get("a"));
+        assertEquals(6, cache.getCurrentBytes());
+
+        cache.invalidateIf(key -> key.equals("b"));
+        assertEquals(3, cache.getCurrentBytes());
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getCurrentBytes());
+    }
+
+    @Test
+    void imagesAreWeighedByTheirPixelBytes() {
+        ImageCache<String> cache = new ImageCache<>(1000);
+        cache.put("small", new WritableImage(10, 10));
+        cache.put("large", new WritableImage(12, 12));
+
+        // 400 + 576 bytes fit, a third image pushes out the least recently used
+        assertEquals(976, cache.getCurrentBytes());
+        cache.put("third", new WritableImage(5, 5));
+        assertNull(cache.get("small"));
+        assertEquals(676, cache.getCurrentBytes());
+    }
+}